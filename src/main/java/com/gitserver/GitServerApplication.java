@@ -2,12 +2,14 @@ package com.gitserver;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Main application class for Git Server.
  * A GitHub-like backend service using SpringBoot and JGit.
  */
 @SpringBootApplication
+@EnableScheduling
 public class GitServerApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,58 @@
+package com.gitserver.cache;
+
+import com.gitserver.config.GitServerConfig;
+import com.gitserver.dto.CacheStats;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of ahead/behind counts keyed by repository and the pair of commits compared.
+ * <p>
+ * The counts only depend on the two tips, so a branch that has not moved since the last
+ * listing costs nothing as long as the default branch has not moved either.
+ */
+@Component
+@RequiredArgsConstructor
+public class AheadBehindCache {
+
+    // Rough per-entry cost of the key, its two object IDs and the counts
+    private static final int ENTRY_OVERHEAD_BYTES = 200;
+
+    private final GitServerConfig config;
+
+    private WeightedLruCache<PairKey, AheadBehind> counts;
+
+    @PostConstruct
+    public void init() {
+        counts = new WeightedLruCache<>("ahead-behind", config.getAheadBehindCacheMaxWeight(),
+                (key, value) -> ENTRY_OVERHEAD_BYTES + key.repo().length());
+    }
+
+    /**
+     * Get the cached counts of {@code tip} relative to {@code base}, or {@code null} if absent.
+     */
+    public AheadBehind get(String repo, AnyObjectId tip, AnyObjectId base) {
+        return counts.get(new PairKey(repo, tip.copy(), base.copy()));
+    }
+
+    public void put(String repo, AnyObjectId tip, AnyObjectId base, AheadBehind value) {
+        counts.put(new PairKey(repo, tip.copy(), base.copy()), value);
+    }
+
+    public CacheStats getStats() {
+        return counts.getStats();
+    }
+
+    /**
+     * Commits reachable only from the tip ({@code ahead}) and only from the base ({@code behind});
+     * {@code truncated} is set if a count stopped at the walk limit.
+     */
+    public record AheadBehind(int ahead, int behind, boolean truncated) {
+    }
+
+    private record PairKey(String repo, ObjectId tip, ObjectId base) {
+    }
+}
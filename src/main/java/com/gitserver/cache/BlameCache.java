@@ -0,0 +1,75 @@
+package com.gitserver.cache;
+
+import com.gitserver.config.GitServerConfig;
+import com.gitserver.dto.CacheStats;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Cache of complete file blames keyed by repository, commit and path.
+ * <p>
+ * A commit's history never changes, so neither does the blame of a file at that commit;
+ * entries only evict by weight. Blames are stored as line regions rather than per line,
+ * which keeps files with few, long-lived hunks cheap regardless of their length.
+ */
+@Component
+@RequiredArgsConstructor
+public class BlameCache {
+
+    // Rough per-object cost of a cached blame and of one of its regions
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+    private static final int REGION_BYTES = 64;
+
+    private final GitServerConfig config;
+
+    private WeightedLruCache<BlameKey, CachedBlame> blames;
+
+    @PostConstruct
+    public void init() {
+        blames = new WeightedLruCache<>("blames", config.getBlameCacheMaxWeight(),
+                (key, blame) -> ENTRY_OVERHEAD_BYTES + key.repo().length() + key.path().length()
+                        + (long) REGION_BYTES * blame.regions().size());
+    }
+
+    /**
+     * Get the cached blame of a file at a commit, or {@code null} if absent.
+     */
+    public CachedBlame get(String repo, AnyObjectId commitId, String path) {
+        return blames.get(new BlameKey(repo, commitId.copy(), path));
+    }
+
+    public void put(String repo, AnyObjectId commitId, String path, CachedBlame blame) {
+        blames.put(new BlameKey(repo, commitId.copy(), path), blame);
+    }
+
+    public CacheStats getStats() {
+        return blames.getStats();
+    }
+
+    /**
+     * The blame of a whole file as regions sorted by line, covering every line exactly once.
+     */
+    public record CachedBlame(int lineCount, List<Region> regions) {
+    }
+
+    /**
+     * Lines {@code [start, start + length)} of the file (0-based) that were last changed by
+     * {@code commitId}, where they were lines {@code [sourceStart, sourceStart + length)} of
+     * {@code sourcePath}. The commit is {@code null} for lines JGit could not attribute,
+     * e.g. beyond a shallow boundary.
+     */
+    public record Region(int start, int length, ObjectId commitId, String sourcePath, int sourceStart) {
+
+        public int end() {
+            return start + length;
+        }
+    }
+
+    private record BlameKey(String repo, ObjectId commitId, String path) {
+    }
+}
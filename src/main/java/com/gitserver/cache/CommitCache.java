@@ -0,0 +1,133 @@
+package com.gitserver.cache;
+
+import com.gitserver.config.GitServerConfig;
+import com.gitserver.dto.CacheStats;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of parsed commit metadata keyed by repository and commit SHA.
+ * <p>
+ * Commits are immutable, so entries never need invalidation and only evict by weight.
+ * Author and committer identities are interned: the same few people sign most commits
+ * of a repository, so each cached commit holds references to shared identities.
+ */
+@Component
+@RequiredArgsConstructor
+public class CommitCache {
+
+    // Rough per-object cost of a cached commit, excluding message and parent contents
+    private static final int ENTRY_OVERHEAD_BYTES = 200;
+
+    private static final int PARENT_BYTES = 40;
+
+    private final GitServerConfig config;
+
+    private final ConcurrentMap<Identity, Identity> identities = new ConcurrentHashMap<>();
+    private WeightedLruCache<CommitKey, CachedCommit> commits;
+
+    @PostConstruct
+    public void init() {
+        commits = new WeightedLruCache<>("commits", config.getCommitCacheMaxWeight(),
+                (key, commit) -> ENTRY_OVERHEAD_BYTES + key.repo().length() + commit.message().length()
+                        + commit.shortMessage().length() + (long) PARENT_BYTES * commit.parents().length);
+    }
+
+    /**
+     * Get cached commit metadata, or {@code null} if absent.
+     */
+    public CachedCommit get(String repo, AnyObjectId commitId) {
+        return commits.get(new CommitKey(repo, commitId.copy()));
+    }
+
+    /**
+     * Get cached commit metadata, parsing the commit with the given walk on a miss.
+     */
+    public CachedCommit load(String repo, RevWalk revWalk, AnyObjectId commitId) throws IOException {
+        CachedCommit cached = get(repo, commitId);
+        if (cached != null) {
+            return cached;
+        }
+        RevCommit commit = revWalk.parseCommit(commitId);
+        if (commit.getRawBuffer() == null) {
+            revWalk.parseBody(commit);
+        }
+        return put(repo, commit);
+    }
+
+    /**
+     * Cache the metadata of a commit whose body has been parsed.
+     */
+    public CachedCommit put(String repo, RevCommit commit) {
+        ObjectId[] parents = new ObjectId[commit.getParentCount()];
+        for (int i = 0; i < parents.length; i++) {
+            parents[i] = commit.getParent(i).copy();
+        }
+        PersonIdent author = commit.getAuthorIdent();
+        PersonIdent committer = commit.getCommitterIdent();
+        CachedCommit cached = new CachedCommit(
+                commit.copy(),
+                commit.getFullMessage(),
+                commit.getShortMessage(),
+                intern(author),
+                author != null ? author.getWhen().getTime() : 0,
+                intern(committer),
+                committer != null ? committer.getWhen().getTime() : commit.getCommitTime() * 1000L,
+                parents);
+        commits.put(new CommitKey(repo, cached.id()), cached);
+        return cached;
+    }
+
+    public CacheStats getStats() {
+        return commits.getStats();
+    }
+
+    private Identity intern(PersonIdent ident) {
+        if (ident == null) {
+            return null;
+        }
+        Identity identity = new Identity(ident.getName(), ident.getEmailAddress());
+        Identity existing = identities.get(identity);
+        if (existing != null) {
+            return existing;
+        }
+        // Interning is only an optimisation; start over rather than grow without bound
+        if (identities.size() >= config.getCommitCacheMaxIdentities()) {
+            identities.clear();
+        }
+        existing = identities.putIfAbsent(identity, identity);
+        return existing != null ? existing : identity;
+    }
+
+    /**
+     * A commit author or committer, shared between all cached commits that carry it.
+     */
+    public record Identity(String name, String email) {
+    }
+
+    /**
+     * Immutable commit metadata; times are in milliseconds since the epoch.
+     */
+    public record CachedCommit(ObjectId id, String message, String shortMessage,
+                               Identity author, long authorTime,
+                               Identity committer, long committerTime,
+                               ObjectId[] parents) {
+
+        public String getName() {
+            return id.getName();
+        }
+    }
+
+    private record CommitKey(String repo, ObjectId commitId) {
+    }
+}
@@ -0,0 +1,147 @@
+package com.gitserver.cache;
+
+import com.gitserver.config.GitServerConfig;
+import com.gitserver.dto.CacheStats;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short-lived cache of in-progress history walks, keyed by the pagination cursor they stopped at.
+ * <p>
+ * Sequential pagination takes the live {@link RevWalk} for the next page instead of rebuilding
+ * it from the cursor, keeping every commit it already parsed. A walk belongs to exactly one
+ * caller between {@link #take} and {@link #put}; cached walks hold a repository lease, which is
+ * released when they expire or are evicted.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CommitWalkCache {
+
+    private final GitServerConfig config;
+
+    private final ConcurrentMap<String, CachedWalk> walks = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Remove and return the walk parked at a cursor, or {@code null} if there is none for this scope.
+     */
+    public CachedWalk take(String scope, String cursor) {
+        CachedWalk cached = walks.remove(cursor);
+        if (cached == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (!cached.scope.equals(scope)) {
+            cached.close();
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return cached;
+    }
+
+    /**
+     * Park a walk at the cursor of its next page; the cache takes ownership of it.
+     */
+    public void put(String cursor, CachedWalk walk) {
+        walk.lastAccess = System.nanoTime();
+        CachedWalk previous = walks.put(cursor, walk);
+        if (previous != null && previous != walk) {
+            previous.close();
+        }
+        evictOverflow();
+    }
+
+    /**
+     * Close walks that have not been continued within the configured TTL.
+     */
+    @Scheduled(fixedDelayString = "${git.server.commit-walk-cache.cleanup-interval-ms:10000}")
+    public void evictExpired() {
+        long cutoff = System.nanoTime() - TimeUnit.SECONDS.toNanos(config.getCommitWalkCacheTtlSeconds());
+        for (Map.Entry<String, CachedWalk> entry : walks.entrySet()) {
+            if (entry.getValue().lastAccess < cutoff && walks.remove(entry.getKey(), entry.getValue())) {
+                entry.getValue().close();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public CacheStats getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+        return CacheStats.builder()
+                .name("commit-walks")
+                .size(walks.size())
+                .hits(hitCount)
+                .misses(missCount)
+                .hitRatio(total == 0 ? 0.0 : (double) hitCount / total)
+                .evictions(evictions.get())
+                .build();
+    }
+
+    @PreDestroy
+    public void close() {
+        walks.values().forEach(CachedWalk::close);
+        walks.clear();
+    }
+
+    private void evictOverflow() {
+        while (walks.size() > config.getCommitWalkCacheMaxSize()) {
+            Map.Entry<String, CachedWalk> eldest = null;
+            for (Map.Entry<String, CachedWalk> entry : walks.entrySet()) {
+                if (eldest == null || entry.getValue().lastAccess < eldest.getValue().lastAccess) {
+                    eldest = entry;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            if (walks.remove(eldest.getKey(), eldest.getValue())) {
+                eldest.getValue().close();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * A history walk together with the repository lease it reads from. The scope names
+     * the repository and any path filter, since cursors alone do not identify them.
+     */
+    public static final class CachedWalk implements AutoCloseable {
+        private final String scope;
+        private final Git git;
+        private final RevWalk revWalk;
+        private volatile long lastAccess = System.nanoTime();
+
+        public CachedWalk(String scope, Git git, RevWalk revWalk) {
+            this.scope = scope;
+            this.git = git;
+            this.revWalk = revWalk;
+        }
+
+        public RevWalk getRevWalk() {
+            return revWalk;
+        }
+
+        @Override
+        public void close() {
+            revWalk.close();
+            git.close();
+        }
+    }
+}
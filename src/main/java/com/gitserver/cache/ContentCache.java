@@ -0,0 +1,185 @@
+package com.gitserver.cache;
+
+import com.gitserver.config.GitServerConfig;
+import com.gitserver.dto.CacheStats;
+import com.gitserver.dto.TreeEntry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Content-addressed cache of tree listings, path lookups and blob bytes.
+ * <p>
+ * Entries are keyed by immutable tree and blob SHAs, so they never need invalidation;
+ * the caches only evict by weight. Blob bytes can optionally be held in direct
+ * (off-heap) buffers to keep large file contents out of the Java heap.
+ */
+@Component
+@RequiredArgsConstructor
+public class ContentCache {
+
+    // Rough per-object cost of a cached tree entry or path lookup, excluding string contents
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    private final GitServerConfig config;
+
+    private WeightedLruCache<ListingKey, List<TreeEntry>> treeListings;
+    private WeightedLruCache<TreePathKey, BlobPath> pathLookups;
+    private WeightedLruCache<ObjectKey, long[]> treeSizes;
+    private WeightedLruCache<ObjectKey, CachedBlob> blobs;
+
+    @PostConstruct
+    public void init() {
+        long treeWeight = config.getContentCacheTreeMaxWeight();
+        treeListings = new WeightedLruCache<>("tree-listings", treeWeight * 5 / 8,
+                (key, entries) -> key.weight() + entries.stream().mapToLong(ContentCache::weigh).sum());
+        pathLookups = new WeightedLruCache<>("path-lookups", treeWeight / 4,
+                (key, blobPath) -> key.weight() + ENTRY_OVERHEAD_BYTES + blobPath.name().length());
+        treeSizes = new WeightedLruCache<>("tree-sizes", treeWeight / 8,
+                (key, sizes) -> ENTRY_OVERHEAD_BYTES + key.repo().length() + 8L * sizes.length);
+        blobs = new WeightedLruCache<>("blobs", config.getContentCacheBlobMaxWeight(),
+                (key, blob) -> ENTRY_OVERHEAD_BYTES + blob.size());
+    }
+
+    public List<TreeEntry> getTreeListing(String repo, AnyObjectId treeId, String path, boolean sizes) {
+        return treeListings.get(new ListingKey(repo, treeId.copy(), normalize(path), sizes));
+    }
+
+    public void putTreeListing(String repo, AnyObjectId treeId, String path, boolean sizes, List<TreeEntry> entries) {
+        treeListings.put(new ListingKey(repo, treeId.copy(), normalize(path), sizes), List.copyOf(entries));
+    }
+
+    /**
+     * Get the entry sizes of a single tree, in tree order, or {@code null} if absent.
+     */
+    public long[] getTreeSizes(String repo, AnyObjectId treeId) {
+        return treeSizes.get(new ObjectKey(repo, treeId.copy()));
+    }
+
+    public void putTreeSizes(String repo, AnyObjectId treeId, long[] sizes) {
+        treeSizes.put(new ObjectKey(repo, treeId.copy()), sizes);
+    }
+
+    public BlobPath getPath(String repo, AnyObjectId treeId, String path) {
+        return pathLookups.get(new TreePathKey(repo, treeId.copy(), normalize(path)));
+    }
+
+    public void putPath(String repo, AnyObjectId treeId, String path, BlobPath blobPath) {
+        pathLookups.put(new TreePathKey(repo, treeId.copy(), normalize(path)), blobPath);
+    }
+
+    public CachedBlob getBlob(String repo, AnyObjectId blobId) {
+        return blobs.get(new ObjectKey(repo, blobId.copy()));
+    }
+
+    /**
+     * Cache blob bytes if they are within the per-blob size limit.
+     */
+    public void putBlob(String repo, AnyObjectId blobId, byte[] bytes) {
+        if (bytes.length > config.getContentCacheBlobMaxSize()) {
+            return;
+        }
+        CachedBlob blob;
+        if (config.isContentCacheOffHeap()) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes).flip();
+            blob = new CachedBlob(null, buffer.asReadOnlyBuffer());
+        } else {
+            blob = new CachedBlob(bytes, null);
+        }
+        blobs.put(new ObjectKey(repo, blobId.copy()), blob);
+    }
+
+    public List<CacheStats> getStats() {
+        return List.of(treeListings.getStats(), pathLookups.getStats(), treeSizes.getStats(), blobs.getStats());
+    }
+
+    private static String normalize(String path) {
+        return path == null ? "" : path;
+    }
+
+    private static long weigh(TreeEntry entry) {
+        return ENTRY_OVERHEAD_BYTES + entry.getName().length() + entry.getPath().length()
+                + entry.getSha().length() + entry.getMode().length();
+    }
+
+    /**
+     * Location of a blob within a tree.
+     */
+    public record BlobPath(String name, ObjectId blobId, int mode) {
+    }
+
+    /**
+     * Blob bytes held either on the heap or in a read-only direct buffer.
+     */
+    public static final class CachedBlob {
+        private final byte[] heap;
+        private final ByteBuffer direct;
+
+        private CachedBlob(byte[] heap, ByteBuffer direct) {
+            this.heap = heap;
+            this.direct = direct;
+        }
+
+        public int size() {
+            return heap != null ? heap.length : direct.capacity();
+        }
+
+        /**
+         * Get the blob bytes; heap-held blobs are returned without copying and must not be modified.
+         */
+        public byte[] getBytes() {
+            if (heap != null) {
+                return heap;
+            }
+            byte[] bytes = new byte[direct.capacity()];
+            direct.duplicate().get(bytes);
+            return bytes;
+        }
+
+        public InputStream openStream() {
+            if (heap != null) {
+                return new ByteArrayInputStream(heap);
+            }
+            ByteBuffer buffer = direct.duplicate();
+            return new InputStream() {
+                @Override
+                public int read() {
+                    return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    if (!buffer.hasRemaining()) {
+                        return -1;
+                    }
+                    int n = Math.min(len, buffer.remaining());
+                    buffer.get(b, off, n);
+                    return n;
+                }
+            };
+        }
+    }
+
+    private record TreePathKey(String repo, ObjectId treeId, String path) {
+        long weight() {
+            return ENTRY_OVERHEAD_BYTES + repo.length() + path.length();
+        }
+    }
+
+    private record ListingKey(String repo, ObjectId treeId, String path, boolean sizes) {
+        long weight() {
+            return ENTRY_OVERHEAD_BYTES + repo.length() + path.length();
+        }
+    }
+
+    private record ObjectKey(String repo, ObjectId objectId) {
+    }
+}
@@ -0,0 +1,89 @@
+package com.gitserver.cache;
+
+import com.gitserver.config.GitServerConfig;
+import com.gitserver.dto.CacheStats;
+import com.gitserver.dto.FileDiff;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Cache of computed diffs keyed by repository and the pair of trees compared.
+ * <p>
+ * A diff is fully determined by its two trees, so entries never need invalidation and
+ * any two commits with the same trees share an entry. Diffs with and without patch text
+ * are cached separately; a stats-only request can also be answered from a cached diff
+ * that has patches.
+ */
+@Component
+@RequiredArgsConstructor
+public class DiffCache {
+
+    // Rough per-object cost of a cached diff and of one of its files, excluding string contents
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+    private static final int FILE_OVERHEAD_BYTES = 240;
+
+    private final GitServerConfig config;
+
+    private WeightedLruCache<DiffKey, CachedDiff> diffs;
+
+    @PostConstruct
+    public void init() {
+        diffs = new WeightedLruCache<>("diffs", config.getDiffCacheMaxWeight(),
+                (key, diff) -> ENTRY_OVERHEAD_BYTES + key.repo().length()
+                        + diff.files().stream().mapToLong(DiffCache::weigh).sum());
+    }
+
+    /**
+     * Get a cached diff, or {@code null} if absent. A {@code null} base tree stands for the empty tree.
+     */
+    public CachedDiff get(String repo, AnyObjectId baseTree, AnyObjectId headTree, boolean patches) {
+        CachedDiff diff = diffs.get(key(repo, baseTree, headTree, patches));
+        if (diff == null && !patches) {
+            CachedDiff withPatches = diffs.get(key(repo, baseTree, headTree, true));
+            if (withPatches != null) {
+                diff = withPatches.withoutPatches();
+            }
+        }
+        return diff;
+    }
+
+    public void put(String repo, AnyObjectId baseTree, AnyObjectId headTree, boolean patches, CachedDiff diff) {
+        diffs.put(key(repo, baseTree, headTree, patches), diff);
+    }
+
+    public CacheStats getStats() {
+        return diffs.getStats();
+    }
+
+    private static DiffKey key(String repo, AnyObjectId baseTree, AnyObjectId headTree, boolean patches) {
+        return new DiffKey(repo, baseTree != null ? baseTree.copy() : ObjectId.zeroId(), headTree.copy(), patches);
+    }
+
+    private static long weigh(FileDiff file) {
+        return FILE_OVERHEAD_BYTES
+                + (file.getOldPath() != null ? file.getOldPath().length() : 0)
+                + (file.getNewPath() != null ? file.getNewPath().length() : 0)
+                + (file.getPatch() != null ? file.getPatch().length() : 0);
+    }
+
+    /**
+     * The files of a diff; {@code truncated} is true if any patch was left out because of a size cap.
+     */
+    public record CachedDiff(List<FileDiff> files, boolean truncated) {
+
+        CachedDiff withoutPatches() {
+            List<FileDiff> stats = files.stream()
+                    .map(file -> file.toBuilder().patch(null).truncated(false).build())
+                    .toList();
+            return new CachedDiff(stats, false);
+        }
+    }
+
+    private record DiffKey(String repo, ObjectId baseTree, ObjectId headTree, boolean patches) {
+    }
+}
@@ -0,0 +1,221 @@
+package com.gitserver.cache;
+
+import com.gitserver.config.GitServerConfig;
+import com.gitserver.dto.RepositoryCacheStats;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryCache;
+import org.eclipse.jgit.util.FS;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared, reference-counted cache of opened JGit repositories.
+ * <p>
+ * Opening a repository re-reads its config, packed-refs and pack indexes, so
+ * repositories are kept open and handed out as leases. Every {@link #acquire(Path)}
+ * returns a {@link Git} whose {@code close()} releases the lease; a repository that
+ * is evicted or invalidated while leased is only closed once the last borrower is done.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class GitRepositoryCache {
+
+    private final GitServerConfig config;
+
+    private final ConcurrentMap<Path, CachedRepository> repositories = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicInteger openHandles = new AtomicInteger();
+
+    /**
+     * Lease the repository at the given git directory, opening it on a cache miss.
+     */
+    public Git acquire(Path gitDir) throws IOException {
+        Path key = gitDir.toAbsolutePath().normalize();
+        while (true) {
+            CachedRepository cached = repositories.get(key);
+            if (cached == null) {
+                misses.incrementAndGet();
+                cached = open(key);
+                evictOverflow();
+            } else {
+                hits.incrementAndGet();
+            }
+
+            if (cached.lease()) {
+                return new LeasedGit(cached);
+            }
+            // The entry was retired between lookup and lease; drop it and retry
+            repositories.remove(key, cached);
+        }
+    }
+
+    /**
+     * Drop the repository at the given git directory from the cache, e.g. before it is deleted.
+     */
+    public void invalidate(Path gitDir) {
+        CachedRepository cached = repositories.remove(gitDir.toAbsolutePath().normalize());
+        if (cached != null) {
+            cached.retire();
+            log.debug("Invalidated cached repository: {}", cached.path);
+        }
+    }
+
+    /**
+     * Close repositories that have not been leased within the configured idle timeout.
+     */
+    @Scheduled(fixedDelayString = "${git.server.repository-cache.cleanup-interval-ms:60000}")
+    public void evictIdle() {
+        long cutoff = System.nanoTime() - TimeUnit.SECONDS.toNanos(config.getRepositoryCacheIdleTimeoutSeconds());
+        for (Map.Entry<Path, CachedRepository> entry : repositories.entrySet()) {
+            CachedRepository cached = entry.getValue();
+            if (cached.isIdleSince(cutoff) && repositories.remove(entry.getKey(), cached)) {
+                cached.retire();
+                evictions.incrementAndGet();
+                log.debug("Closed idle repository: {}", cached.path);
+            }
+        }
+    }
+
+    public RepositoryCacheStats getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+        return RepositoryCacheStats.builder()
+                .size(repositories.size())
+                .maxSize(config.getRepositoryCacheMaxSize())
+                .hits(hitCount)
+                .misses(missCount)
+                .hitRatio(total == 0 ? 0.0 : (double) hitCount / total)
+                .evictions(evictions.get())
+                .openHandles(openHandles.get())
+                .build();
+    }
+
+    @PreDestroy
+    public void close() {
+        repositories.values().forEach(CachedRepository::retire);
+        repositories.clear();
+    }
+
+    private CachedRepository open(Path key) throws IOException {
+        try {
+            return repositories.computeIfAbsent(key, path -> {
+                try {
+                    Repository repository = RepositoryCache.FileKey.exact(path.toFile(), FS.DETECTED).open(true);
+                    log.debug("Opened repository: {}", path);
+                    return new CachedRepository(path, repository);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void evictOverflow() {
+        while (repositories.size() > config.getRepositoryCacheMaxSize()) {
+            Map.Entry<Path, CachedRepository> eldest = null;
+            for (Map.Entry<Path, CachedRepository> entry : repositories.entrySet()) {
+                if (eldest == null || entry.getValue().lastAccess < eldest.getValue().lastAccess) {
+                    eldest = entry;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            if (repositories.remove(eldest.getKey(), eldest.getValue())) {
+                eldest.getValue().retire();
+                evictions.incrementAndGet();
+                log.debug("Evicted repository: {}", eldest.getKey());
+            }
+        }
+    }
+
+    /**
+     * A cached repository together with its lease count.
+     */
+    private final class CachedRepository {
+        private final Path path;
+        private final Repository repository;
+        private volatile long lastAccess = System.nanoTime();
+        private int leases;
+        private boolean retired;
+
+        private CachedRepository(Path path, Repository repository) {
+            this.path = path;
+            this.repository = repository;
+        }
+
+        synchronized boolean lease() {
+            if (retired) {
+                return false;
+            }
+            leases++;
+            lastAccess = System.nanoTime();
+            openHandles.incrementAndGet();
+            return true;
+        }
+
+        synchronized void release() {
+            leases--;
+            lastAccess = System.nanoTime();
+            openHandles.decrementAndGet();
+            if (retired && leases == 0) {
+                repository.close();
+            }
+        }
+
+        synchronized void retire() {
+            if (retired) {
+                return;
+            }
+            retired = true;
+            if (leases == 0) {
+                repository.close();
+            }
+        }
+
+        synchronized boolean isIdleSince(long cutoff) {
+            return leases == 0 && lastAccess < cutoff;
+        }
+    }
+
+    /**
+     * A {@link Git} handle whose {@code close()} returns the lease instead of closing the repository.
+     */
+    private static final class LeasedGit extends Git {
+        private final CachedRepository cached;
+        private boolean released;
+
+        private LeasedGit(CachedRepository cached) {
+            super(cached.repository);
+            this.cached = cached;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                cached.release();
+            }
+        }
+    }
+}
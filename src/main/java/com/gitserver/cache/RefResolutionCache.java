@@ -0,0 +1,134 @@
+package com.gitserver.cache;
+
+import com.gitserver.config.GitServerConfig;
+import com.gitserver.dto.CacheStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.events.ListenerHandle;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-repository cache of ref name to resolved {@link ObjectId}.
+ * <p>
+ * Resolutions are held in a {@link RefSnapshot} tied to one state of the repository's
+ * ref database. Any ref update seen by JGit, an explicit {@link #invalidate(Repository)}
+ * or the configured TTL discards the snapshot, so values stored into an outdated
+ * snapshot are never served.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RefResolutionCache {
+
+    private static final int MAX_REFS_PER_REPOSITORY = 1024;
+
+    private final GitServerConfig config;
+
+    private final ConcurrentMap<File, RefSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private ListenerHandle refsChangedHandle;
+
+    @PostConstruct
+    public void init() {
+        // RefDirectory fires this for local updates and whenever a scan notices an external change
+        refsChangedHandle = Repository.getGlobalListenerList()
+                .addRefsChangedListener(event -> invalidate(event.getRepository()));
+    }
+
+    @PreDestroy
+    public void close() {
+        if (refsChangedHandle != null) {
+            refsChangedHandle.remove();
+        }
+        snapshots.clear();
+    }
+
+    /**
+     * Get the current ref snapshot of a repository, starting a new one if needed.
+     */
+    public RefSnapshot snapshot(Repository repository) {
+        File key = repository.getDirectory();
+        long now = System.nanoTime();
+        RefSnapshot snapshot = snapshots.get(key);
+        if (snapshot != null && snapshot.isCurrent(repository, now)) {
+            return snapshot;
+        }
+        return snapshots.compute(key, (k, existing) ->
+                existing != null && existing.isCurrent(repository, now) ? existing : new RefSnapshot(repository, now));
+    }
+
+    /**
+     * Discard cached resolutions for a repository after its refs changed.
+     */
+    public void invalidate(Repository repository) {
+        if (repository != null && repository.getDirectory() != null
+                && snapshots.remove(repository.getDirectory()) != null) {
+            invalidations.incrementAndGet();
+        }
+    }
+
+    public CacheStats getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+        return CacheStats.builder()
+                .name("refs")
+                .size(snapshots.values().stream().mapToLong(snapshot -> snapshot.refs.size()).sum())
+                .hits(hitCount)
+                .misses(missCount)
+                .hitRatio(total == 0 ? 0.0 : (double) hitCount / total)
+                .evictions(invalidations.get())
+                .build();
+    }
+
+    /**
+     * Ref resolutions valid for a single state of a repository's ref database.
+     */
+    public final class RefSnapshot {
+        private final Repository repository;
+        private final long createdAt;
+        private final ConcurrentMap<String, ObjectId> refs = new ConcurrentHashMap<>();
+
+        private RefSnapshot(Repository repository, long createdAt) {
+            this.repository = repository;
+            this.createdAt = createdAt;
+        }
+
+        /**
+         * Get a cached resolution, or {@code null} if the ref has not been resolved in this snapshot.
+         */
+        public ObjectId get(String ref) {
+            ObjectId objectId = refs.get(ref);
+            if (objectId != null) {
+                hits.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+            }
+            return objectId;
+        }
+
+        public void put(String ref, ObjectId objectId) {
+            if (refs.size() < MAX_REFS_PER_REPOSITORY) {
+                refs.put(ref, objectId.copy());
+            }
+        }
+
+        private boolean isCurrent(Repository current, long now) {
+            // A reopened repository (e.g. after delete and re-create) never shares a snapshot
+            return repository == current
+                    && now - createdAt < TimeUnit.SECONDS.toNanos(config.getRefCacheTtlSeconds());
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.gitserver.cache;
+
+import java.nio.file.Path;
+
+/**
+ * Immutable repository metadata held by the {@link RepositoryRegistry}.
+ */
+public record RegisteredRepository(
+        Long id,
+        String owner,
+        String name,
+        String defaultBranch,
+        boolean isPrivate,
+        Path path) {
+}
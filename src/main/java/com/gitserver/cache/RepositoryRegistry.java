@@ -0,0 +1,149 @@
+package com.gitserver.cache;
+
+import com.gitserver.config.GitServerConfig;
+import com.gitserver.dto.RepositoryRegistryStats;
+import com.gitserver.model.Repository;
+import com.gitserver.repository.RepositoryJpaRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory registry of (owner, name) to repository metadata and resolved storage path.
+ * <p>
+ * Git operations look repositories up here instead of querying the database and
+ * stat-ing the filesystem on every request. The registry is bulk-loaded at startup
+ * and kept current by {@link #register(Repository)} and {@link #unregister(String, String)}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RepositoryRegistry {
+
+    private static final int LOAD_BATCH_SIZE = 5000;
+
+    // Rough per-entry cost of the map node, key, record and Path objects, excluding string contents
+    private static final int ENTRY_OVERHEAD_BYTES = 240;
+
+    private final GitServerConfig config;
+    private final RepositoryJpaRepository repositoryJpaRepository;
+
+    private final Object writeLock = new Object();
+    private volatile Map<Key, RegisteredRepository> repositories = new ConcurrentHashMap<>();
+    private final AtomicLong estimatedBytes = new AtomicLong();
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile long lastLoadMillis;
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * Rebuild the registry from the database, reading repositories in keyset-paginated batches.
+     */
+    public void reload() {
+        synchronized (writeLock) {
+            long start = System.currentTimeMillis();
+            Map<Key, RegisteredRepository> loaded = new ConcurrentHashMap<>((int) Math.min(Integer.MAX_VALUE,
+                    repositoryJpaRepository.count() * 4 / 3 + 16));
+            long bytes = 0;
+            long lastId = 0;
+
+            List<Repository> batch;
+            do {
+                batch = repositoryJpaRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(LOAD_BATCH_SIZE));
+                for (Repository repo : batch) {
+                    RegisteredRepository registered = toRegisteredRepository(repo);
+                    loaded.put(new Key(repo.getOwner(), repo.getName()), registered);
+                    bytes += estimateSize(registered);
+                    lastId = repo.getId();
+                }
+            } while (batch.size() == LOAD_BATCH_SIZE);
+
+            repositories = loaded;
+            estimatedBytes.set(bytes);
+            lastLoadMillis = System.currentTimeMillis() - start;
+            log.info("Loaded {} repositories into registry in {} ms (~{} KiB)",
+                    loaded.size(), lastLoadMillis, bytes / 1024);
+        }
+    }
+
+    /**
+     * Look up a repository, returning {@code null} if it is not registered.
+     */
+    public RegisteredRepository lookup(String owner, String name) {
+        lookups.incrementAndGet();
+        RegisteredRepository registered = repositories.get(new Key(owner, name));
+        if (registered == null) {
+            misses.incrementAndGet();
+        }
+        return registered;
+    }
+
+    /**
+     * Get a snapshot of every registered repository.
+     */
+    public List<RegisteredRepository> getRepositories() {
+        return List.copyOf(repositories.values());
+    }
+
+    public RegisteredRepository register(Repository repo) {
+        RegisteredRepository registered = toRegisteredRepository(repo);
+        synchronized (writeLock) {
+            RegisteredRepository previous = repositories.put(new Key(repo.getOwner(), repo.getName()), registered);
+            if (previous != null) {
+                estimatedBytes.addAndGet(-estimateSize(previous));
+            }
+            estimatedBytes.addAndGet(estimateSize(registered));
+        }
+        return registered;
+    }
+
+    public void unregister(String owner, String name) {
+        synchronized (writeLock) {
+            RegisteredRepository previous = repositories.remove(new Key(owner, name));
+            if (previous != null) {
+                estimatedBytes.addAndGet(-estimateSize(previous));
+            }
+        }
+    }
+
+    public RepositoryRegistryStats getStats() {
+        return RepositoryRegistryStats.builder()
+                .size(repositories.size())
+                .estimatedBytes(estimatedBytes.get())
+                .lookups(lookups.get())
+                .misses(misses.get())
+                .lastLoadMillis(lastLoadMillis)
+                .build();
+    }
+
+    private RegisteredRepository toRegisteredRepository(Repository repo) {
+        return new RegisteredRepository(
+                repo.getId(),
+                repo.getOwner(),
+                repo.getName(),
+                repo.getDefaultBranch(),
+                repo.isPrivate(),
+                config.getRepositoryPath(repo.getOwner(), repo.getName()).toAbsolutePath().normalize());
+    }
+
+    private static long estimateSize(RegisteredRepository registered) {
+        long chars = registered.owner().length() + registered.name().length()
+                + (registered.defaultBranch() != null ? registered.defaultBranch().length() : 0);
+        // Key and record share the same strings; compact strings cost about one byte per character
+        return ENTRY_OVERHEAD_BYTES + chars + registered.path().toString().length();
+    }
+
+    private record Key(String owner, String name) {
+    }
+}
@@ -0,0 +1,405 @@
+package com.gitserver.cache;
+
+import com.gitserver.config.GitServerConfig;
+import com.gitserver.dto.CacheStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.events.ListenerHandle;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.util.RawParseUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * On-disk cache of complete upload-pack responses for clones.
+ * <p>
+ * A request that wants a set of tips and has nothing (no haves, no shallow or filter
+ * options) always produces the same pack while the repository's refs stay put, so the
+ * first response is recorded to a file as it is streamed and identical requests are
+ * answered by copying that file with {@link FileChannel#transferTo}, skipping object
+ * enumeration and delta search. Entries are keyed by the repository and a digest of the
+ * request (wanted tips and capabilities), evicted least recently used once the total file
+ * size exceeds the limit, and dropped for a repository whenever JGit sees its refs change.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UploadPackCache {
+
+    private static final String FILE_SUFFIX = ".pack";
+
+    private final GitServerConfig config;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ConcurrentMap<Path, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private long totalBytes;
+    private Path directory;
+    private ListenerHandle refsChangedHandle;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!config.isUploadPackCacheEnabled()) {
+            return;
+        }
+        directory = Paths.get(config.getUploadPackCacheDirectory()).toAbsolutePath().normalize();
+        Files.createDirectories(directory);
+        // The index is not persisted, so files left by a previous run can never be served
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path file : stale) {
+                Files.deleteIfExists(file);
+            }
+        }
+        refsChangedHandle = Repository.getGlobalListenerList()
+                .addRefsChangedListener(event -> invalidate(event.getRepository()));
+    }
+
+    @PreDestroy
+    public void close() {
+        if (refsChangedHandle != null) {
+            refsChangedHandle.remove();
+        }
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Get the cache key of a complete upload-pack request, or {@code null} if its response
+     * cannot be cached (it carries haves, shallow, deepen or filter lines, or is malformed).
+     *
+     * @param protocol the client's protocol parameters, part of the key as they select v0 or v2
+     */
+    public Key key(Repository repository, String protocol, byte[] request) {
+        if (!isEnabled() || repository.getDirectory() == null) {
+            return null;
+        }
+        List<String> lines = pktLines(request);
+        if (lines == null || !isFullClone(lines)) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            if (protocol != null) {
+                digest.update(protocol.getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 0);
+            digest.update(request);
+            return new Key(gitDir(repository), HexFormat.of().formatHex(digest.digest()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Copy the cached response for a key to {@code out}.
+     *
+     * @return {@code false} without writing anything if the response is not cached
+     */
+    public boolean replay(Key key, OutputStream out) throws IOException {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return false;
+        }
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(entry.file(), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            // Evicted between the lookup and the open
+            misses.incrementAndGet();
+            return false;
+        }
+        hits.incrementAndGet();
+        try (channel) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = 0;
+            while (position < entry.size()) {
+                position += channel.transferTo(position, entry.size() - position, target);
+            }
+        }
+        out.flush();
+        return true;
+    }
+
+    /**
+     * Start recording the response for a key: bytes written to the returned stream go to
+     * {@code out} and to a new cache file, which is only installed by {@link Recording#commit()}.
+     */
+    public Recording record(Key key, OutputStream out) throws IOException {
+        long generation = generation(key.gitDir()).get();
+        Path file = Files.createTempFile(directory, key.digest().substring(0, 16) + "-", FILE_SUFFIX);
+        return new Recording(key, generation, file, out);
+    }
+
+    /**
+     * Drop every cached response of a repository.
+     */
+    public void invalidate(Repository repository) {
+        if (!isEnabled() || repository.getDirectory() == null) {
+            return;
+        }
+        Path gitDir = gitDir(repository);
+        generation(gitDir).incrementAndGet();
+        List<Path> removed = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Key, Entry> entry = it.next();
+                if (entry.getKey().gitDir().equals(gitDir)) {
+                    totalBytes -= entry.getValue().size();
+                    removed.add(entry.getValue().file());
+                    it.remove();
+                }
+            }
+        }
+        removed.forEach(UploadPackCache::delete);
+    }
+
+    public CacheStats getStats() {
+        long size;
+        long weight;
+        synchronized (this) {
+            size = entries.size();
+            weight = totalBytes;
+        }
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+        return CacheStats.builder()
+                .name("upload-pack")
+                .size(size)
+                .weightBytes(weight)
+                .maxWeightBytes(config.getUploadPackCacheMaxSize())
+                .hits(hitCount)
+                .misses(missCount)
+                .hitRatio(total == 0 ? 0.0 : (double) hitCount / total)
+                .evictions(evictions.get())
+                .build();
+    }
+
+    private void install(Key key, long generation, Path file, long size) {
+        List<Path> removed = new ArrayList<>();
+        synchronized (this) {
+            if (generation(key.gitDir()).get() != generation) {
+                // Refs moved while the pack was generated; it may include tags or tips no longer advertised
+                removed.add(file);
+            } else {
+                Entry previous = entries.put(key, new Entry(file, size));
+                if (previous != null) {
+                    totalBytes -= previous.size();
+                    removed.add(previous.file());
+                }
+                totalBytes += size;
+                Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+                while (totalBytes > config.getUploadPackCacheMaxSize() && eldest.hasNext()) {
+                    Entry evicted = eldest.next().getValue();
+                    totalBytes -= evicted.size();
+                    removed.add(evicted.file());
+                    eldest.remove();
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+        // Readers that already opened an evicted file keep reading it after the unlink
+        removed.forEach(UploadPackCache::delete);
+    }
+
+    private AtomicLong generation(Path gitDir) {
+        return generations.computeIfAbsent(gitDir, dir -> new AtomicLong());
+    }
+
+    private static Path gitDir(Repository repository) {
+        File gitDir = repository.getDirectory();
+        return gitDir.toPath().toAbsolutePath().normalize();
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete cached pack {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Whether a request only wants tips: v0 {@code want ... done}, or a v2 {@code fetch}
+     * command whose arguments contain no negotiation or shallow state.
+     */
+    private static boolean isFullClone(List<String> lines) {
+        boolean wants = false;
+        boolean done = false;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.startsWith("command=")) {
+                if (i != 0 || !line.equals("command=fetch")) {
+                    return false;
+                }
+            } else if (line.startsWith("want ")) {
+                wants = true;
+            } else if (line.equals("done")) {
+                done = true;
+            } else if (line.startsWith("have ") || line.startsWith("shallow ") || line.startsWith("deepen")
+                    || line.startsWith("filter ") || line.startsWith("want-ref ")
+                    || line.startsWith("packfile-uris ")) {
+                return false;
+            }
+        }
+        return wants && done;
+    }
+
+    /**
+     * Split a request into its pkt-line payloads, without the trailing newline, skipping
+     * flush and delimiter packets; {@code null} if the request is not well-formed.
+     */
+    private static List<String> pktLines(byte[] request) {
+        List<String> lines = new ArrayList<>();
+        int position = 0;
+        while (position < request.length) {
+            if (position + 4 > request.length) {
+                return null;
+            }
+            int length = RawParseUtils.parseHexInt16(request, position);
+            if (length < 4) {
+                // 0000 flush, 0001 delimiter, 0002 response end
+                position += 4;
+                continue;
+            }
+            if (position + length > request.length) {
+                return null;
+            }
+            int end = position + length;
+            if (request[end - 1] == '\n') {
+                end--;
+            }
+            lines.add(new String(request, position + 4, end - position - 4, StandardCharsets.UTF_8));
+            position += length;
+        }
+        return lines;
+    }
+
+    public record Key(Path gitDir, String digest) {
+    }
+
+    private record Entry(Path file, long size) {
+    }
+
+    /**
+     * Tees a response to the client and a cache file. A failing or oversized file write only
+     * abandons the recording; the client keeps receiving the response.
+     */
+    public final class Recording extends FilterOutputStream {
+        private final Key key;
+        private final long generation;
+        private final Path file;
+        private OutputStream fileOut;
+        private long size;
+
+        private Recording(Key key, long generation, Path file, OutputStream out) throws IOException {
+            super(out);
+            this.key = key;
+            this.generation = generation;
+            this.file = file;
+            this.fileOut = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            record(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            record(b, off, len);
+        }
+
+        /**
+         * Install the recorded response if it is complete and within the size limits.
+         */
+        public void commit() {
+            if (fileOut == null) {
+                return;
+            }
+            try {
+                fileOut.close();
+                fileOut = null;
+            } catch (IOException e) {
+                abort();
+                return;
+            }
+            if (size < config.getUploadPackCacheMinSize()) {
+                delete(file);
+                return;
+            }
+            install(key, generation, file, size);
+        }
+
+        /**
+         * Discard the recording, e.g. because the response failed part way.
+         */
+        public void abort() {
+            if (fileOut != null) {
+                try {
+                    fileOut.close();
+                } catch (IOException e) {
+                    // The file is deleted anyway
+                }
+                fileOut = null;
+            }
+            delete(file);
+        }
+
+        private void record(byte[] b, int off, int len) {
+            if (fileOut == null) {
+                return;
+            }
+            size += len;
+            if (size > config.getUploadPackCacheMaxSize()) {
+                abort();
+                return;
+            }
+            try {
+                fileOut.write(b, off, len);
+            } catch (IOException e) {
+                log.warn("Failed to record pack for {}: {}", key.gitDir(), e.getMessage());
+                abort();
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.gitserver.cache;
+
+import com.gitserver.dto.CacheStats;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * Bounded LRU cache that evicts by total weight rather than entry count.
+ * <p>
+ * The key space is split into independently locked segments, each with an equal
+ * share of the weight budget, so concurrent readers of different keys rarely contend.
+ * Values heavier than a segment's budget are never stored.
+ */
+public class WeightedLruCache<K, V> {
+
+    private static final int SEGMENTS = 16;
+
+    private final String name;
+    private final long maxWeight;
+    private final ToLongBiFunction<K, V> weigher;
+    private final Segment[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public WeightedLruCache(String name, long maxWeight, ToLongBiFunction<K, V> weigher) {
+        this.name = name;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.segments = new WeightedLruCache.Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(maxWeight / SEGMENTS);
+        }
+    }
+
+    /**
+     * Get a cached value, or {@code null} if absent.
+     */
+    public V get(K key) {
+        V value = segmentFor(key).get(key);
+        if (value != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        segmentFor(key).put(key, value, weigher.applyAsLong(key, value));
+    }
+
+    public void invalidate(K key) {
+        segmentFor(key).remove(key);
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public CacheStats getStats() {
+        long size = 0;
+        long weight = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+                weight += segment.weight;
+            }
+        }
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        return CacheStats.builder()
+                .name(name)
+                .size(size)
+                .weightBytes(weight)
+                .maxWeightBytes(maxWeight)
+                .hits(hitCount)
+                .misses(missCount)
+                .hitRatio(total == 0 ? 0.0 : (double) hitCount / total)
+                .evictions(evictions.sum())
+                .build();
+    }
+
+    private Segment segmentFor(K key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[hash & (SEGMENTS - 1)];
+    }
+
+    private record Weighted<V>(V value, long weight) {
+    }
+
+    private final class Segment {
+        private final long maxWeight;
+        private final LinkedHashMap<K, Weighted<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long weight;
+
+        private Segment(long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+
+        synchronized V get(K key) {
+            Weighted<V> entry = entries.get(key);
+            return entry != null ? entry.value() : null;
+        }
+
+        synchronized void put(K key, V value, long valueWeight) {
+            if (valueWeight > maxWeight) {
+                return;
+            }
+            Weighted<V> previous = entries.put(key, new Weighted<>(value, valueWeight));
+            if (previous != null) {
+                weight -= previous.weight();
+            }
+            weight += valueWeight;
+
+            Iterator<Map.Entry<K, Weighted<V>>> eldest = entries.entrySet().iterator();
+            while (weight > maxWeight && eldest.hasNext()) {
+                Map.Entry<K, Weighted<V>> entry = eldest.next();
+                weight -= entry.getValue().weight();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+
+        synchronized void remove(K key) {
+            Weighted<V> previous = entries.remove(key);
+            if (previous != null) {
+                weight -= previous.weight();
+            }
+        }
+
+        synchronized void clear() {
+            entries.clear();
+            weight = 0;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.gitserver.config;
+
+import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.storage.file.FileBasedConfig;
+import org.eclipse.jgit.util.FS;
+import org.eclipse.jgit.util.SystemReader;
+
+import java.io.IOException;
+
+/**
+ * Delegating {@link SystemReader} that turns on {@code commitGraph.readChangedPaths} in JGit's
+ * own configuration.
+ * <p>
+ * JGit decides whether to load the changed-path Bloom filters of a commit-graph from its
+ * global config only, never from repository config, so the server overlays the setting
+ * in memory rather than requiring an edit to the user's JGit config file.
+ */
+final class ChangedPathsSystemReader extends SystemReader {
+
+    private final SystemReader delegate;
+    private StoredConfig overlay;
+
+    ChangedPathsSystemReader(SystemReader delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized StoredConfig getJGitConfig() throws ConfigInvalidException, IOException {
+        // The base config reloads itself in place when its file changes, so the overlay stays valid
+        StoredConfig base = super.getJGitConfig();
+        if (overlay == null) {
+            overlay = new StoredConfig(base) {
+                @Override
+                public void load() {
+                    // Nothing to load; values come from the base config and the overlay itself
+                }
+
+                @Override
+                public void save() {
+                    // The overlay is never persisted
+                }
+            };
+            overlay.setBoolean(ConfigConstants.CONFIG_COMMIT_GRAPH_SECTION, null,
+                    ConfigConstants.CONFIG_KEY_READ_CHANGED_PATHS, true);
+        }
+        return overlay;
+    }
+
+    @Override
+    public String getHostname() {
+        return delegate.getHostname();
+    }
+
+    @Override
+    public String getenv(String variable) {
+        return delegate.getenv(variable);
+    }
+
+    @Override
+    public String getProperty(String key) {
+        return delegate.getProperty(key);
+    }
+
+    @Override
+    public FileBasedConfig openUserConfig(Config parent, FS fs) {
+        return delegate.openUserConfig(parent, fs);
+    }
+
+    @Override
+    public FileBasedConfig openSystemConfig(Config parent, FS fs) {
+        return delegate.openSystemConfig(parent, fs);
+    }
+
+    @Override
+    public FileBasedConfig openJGitConfig(Config parent, FS fs) {
+        return delegate.openJGitConfig(parent, fs);
+    }
+
+    @Override
+    public long getCurrentTime() {
+        return delegate.getCurrentTime();
+    }
+
+    @Override
+    public int getTimezone(long when) {
+        return delegate.getTimezone(when);
+    }
+}
@@ -1,7 +1,11 @@
 package com.gitserver.config;
 
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.eclipse.jgit.util.SystemReader;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
 import jakarta.annotation.PostConstruct;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -9,9 +13,10 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 
 /**
- * Configuration for Git Server including repository storage paths.
+ * Configuration for Git Server including repository storage paths and JGit pack caches.
  */
 @Configuration
+@Slf4j
 public class GitServerConfig {
 
     @Value("${git.server.repositories.base-path}")
@@ -20,11 +25,316 @@ public class GitServerConfig {
     @Value("${git.server.ssh-keys.base-path}")
     private String sshKeysBasePath;
 
+    @Value("${git.server.repository-cache.max-size:256}")
+    private int repositoryCacheMaxSize;
+
+    @Value("${git.server.repository-cache.idle-timeout-seconds:300}")
+    private long repositoryCacheIdleTimeoutSeconds;
+
+    @Value("${git.server.ref-cache.ttl-seconds:60}")
+    private long refCacheTtlSeconds;
+
+    @Value("${git.server.content-cache.tree-max-weight:64MB}")
+    private DataSize contentCacheTreeMaxWeight;
+
+    @Value("${git.server.content-cache.blob-max-weight:256MB}")
+    private DataSize contentCacheBlobMaxWeight;
+
+    @Value("${git.server.content-cache.blob-max-size:1MB}")
+    private DataSize contentCacheBlobMaxSize;
+
+    @Value("${git.server.content-cache.off-heap:false}")
+    private boolean contentCacheOffHeap;
+
+    @Value("${git.server.contents.stream-threshold:1MB}")
+    private DataSize contentsStreamThreshold;
+
+    @Value("${git.server.contents.max-inline-size:10MB}")
+    private DataSize contentsMaxInlineSize;
+
+    @Value("${git.server.tree.max-depth:64}")
+    private int treeMaxDepth;
+
+    @Value("${git.server.tree.max-entries:100000}")
+    private int treeMaxEntries;
+
+    @Value("${git.server.commit-walk-cache.max-size:256}")
+    private int commitWalkCacheMaxSize;
+
+    @Value("${git.server.commit-walk-cache.ttl-seconds:60}")
+    private long commitWalkCacheTtlSeconds;
+
+    @Value("${git.server.commit-cache.max-weight:32MB}")
+    private DataSize commitCacheMaxWeight;
+
+    @Value("${git.server.commit-cache.max-identities:65536}")
+    private int commitCacheMaxIdentities;
+
+    @Value("${git.server.blame-cache.max-weight:64MB}")
+    private DataSize blameCacheMaxWeight;
+
+    @Value("${git.server.diff.max-file-size:1MB}")
+    private DataSize diffMaxFileSize;
+
+    @Value("${git.server.diff.max-patch-size:256KB}")
+    private DataSize diffMaxPatchSize;
+
+    @Value("${git.server.diff.max-total-size:4MB}")
+    private DataSize diffMaxTotalSize;
+
+    @Value("${git.server.diff.rename-limit:400}")
+    private int diffRenameLimit;
+
+    @Value("${git.server.diff-cache.max-weight:64MB}")
+    private DataSize diffCacheMaxWeight;
+
+    @Value("${git.server.branches.ahead-behind-max-commits:10000}")
+    private int aheadBehindMaxCommits;
+
+    @Value("${git.server.ahead-behind-cache.max-weight:8MB}")
+    private DataSize aheadBehindCacheMaxWeight;
+
+    @Value("${git.server.http.receive-pack:false}")
+    private boolean httpReceivePack;
+
+    @Value("${git.server.protocol.v2:true}")
+    private boolean protocolV2;
+
+    @Value("${git.server.protocol.ref-in-want:true}")
+    private boolean protocolRefInWant;
+
+    @Value("${git.server.ssh.enabled:true}")
+    private boolean sshEnabled;
+
+    @Value("${git.server.ssh.port:2222}")
+    private int sshPort;
+
+    @Value("${git.server.ssh.host-key-path:${git.server.ssh-keys.base-path}/ssh_host_key}")
+    private String sshHostKeyPath;
+
+    @Value("${git.server.ssh.nio-workers:4}")
+    private int sshNioWorkers;
+
+    @Value("${git.server.ssh.command-threads:32}")
+    private int sshCommandThreads;
+
+    @Value("${git.server.upload-pack-cache.enabled:true}")
+    private boolean uploadPackCacheEnabled;
+
+    @Value("${git.server.upload-pack-cache.directory:${java.io.tmpdir}/git-server-upload-pack-cache}")
+    private String uploadPackCacheDirectory;
+
+    @Value("${git.server.upload-pack-cache.max-size:2GB}")
+    private DataSize uploadPackCacheMaxSize;
+
+    @Value("${git.server.upload-pack-cache.min-size:64KB}")
+    private DataSize uploadPackCacheMinSize;
+
+    @Value("${git.server.commit-graph.enabled:true}")
+    private boolean commitGraphEnabled;
+
+    @Value("${git.server.commit-graph.changed-paths:true}")
+    private boolean commitGraphChangedPaths;
+
+    @Value("${git.server.bitmaps.enabled:true}")
+    private boolean bitmapsEnabled;
+
+    @Value("${git.server.bitmaps.refresh-commits:100}")
+    private int bitmapRefreshCommits;
+
+    @Value("${git.server.pack.packed-git-limit:512MB}")
+    private DataSize packedGitLimit;
+
+    @Value("${git.server.pack.window-size:64KB}")
+    private DataSize packedGitWindowSize;
+
+    @Value("${git.server.pack.mmap:false}")
+    private boolean packedGitMmap;
+
+    @Value("${git.server.pack.open-files:512}")
+    private int packedGitOpenFiles;
+
+    @Value("${git.server.pack.delta-base-cache-limit:64MB}")
+    private DataSize deltaBaseCacheLimit;
+
+    @Value("${git.server.pack.stream-file-threshold:50MB}")
+    private DataSize streamFileThreshold;
+
     @PostConstruct
     public void init() throws IOException {
         // Create base directories if they don't exist
         Files.createDirectories(Paths.get(repositoriesBasePath));
         Files.createDirectories(Paths.get(sshKeysBasePath));
+
+        // Replace JGit's process-wide pack window and delta base cache defaults
+        getWindowCacheConfig().install();
+        log.info("Configured JGit pack cache: limit={}, window={}, mmap={}, openFiles={}, deltaBaseCache={}, streamFileThreshold={}",
+                packedGitLimit, packedGitWindowSize, packedGitMmap, packedGitOpenFiles,
+                deltaBaseCacheLimit, streamFileThreshold);
+
+        // Path history can only skip tree diffs if JGit loads the graphs' Bloom filters
+        if (commitGraphChangedPaths && !(SystemReader.getInstance() instanceof ChangedPathsSystemReader)) {
+            SystemReader.setInstance(new ChangedPathsSystemReader(SystemReader.getInstance()));
+        }
+    }
+
+    public long getRefCacheTtlSeconds() {
+        return refCacheTtlSeconds;
+    }
+
+    public long getContentCacheTreeMaxWeight() {
+        return contentCacheTreeMaxWeight.toBytes();
+    }
+
+    public long getContentCacheBlobMaxWeight() {
+        return contentCacheBlobMaxWeight.toBytes();
+    }
+
+    public long getContentCacheBlobMaxSize() {
+        return contentCacheBlobMaxSize.toBytes();
+    }
+
+    public boolean isContentCacheOffHeap() {
+        return contentCacheOffHeap;
+    }
+
+    public long getContentsStreamThreshold() {
+        return contentsStreamThreshold.toBytes();
+    }
+
+    public long getContentsMaxInlineSize() {
+        return contentsMaxInlineSize.toBytes();
+    }
+
+    public int getTreeMaxDepth() {
+        return treeMaxDepth;
+    }
+
+    public int getTreeMaxEntries() {
+        return treeMaxEntries;
+    }
+
+    public int getCommitWalkCacheMaxSize() {
+        return commitWalkCacheMaxSize;
+    }
+
+    public long getCommitWalkCacheTtlSeconds() {
+        return commitWalkCacheTtlSeconds;
+    }
+
+    public long getCommitCacheMaxWeight() {
+        return commitCacheMaxWeight.toBytes();
+    }
+
+    public int getCommitCacheMaxIdentities() {
+        return commitCacheMaxIdentities;
+    }
+
+    public long getBlameCacheMaxWeight() {
+        return blameCacheMaxWeight.toBytes();
+    }
+
+    public int getDiffMaxFileSize() {
+        return (int) Math.min(Integer.MAX_VALUE, diffMaxFileSize.toBytes());
+    }
+
+    public long getDiffMaxPatchSize() {
+        return diffMaxPatchSize.toBytes();
+    }
+
+    public long getDiffMaxTotalSize() {
+        return diffMaxTotalSize.toBytes();
+    }
+
+    public int getDiffRenameLimit() {
+        return diffRenameLimit;
+    }
+
+    public long getDiffCacheMaxWeight() {
+        return diffCacheMaxWeight.toBytes();
+    }
+
+    public int getAheadBehindMaxCommits() {
+        return aheadBehindMaxCommits;
+    }
+
+    public long getAheadBehindCacheMaxWeight() {
+        return aheadBehindCacheMaxWeight.toBytes();
+    }
+
+    public boolean isHttpReceivePack() {
+        return httpReceivePack;
+    }
+
+    public boolean isProtocolV2() {
+        return protocolV2;
+    }
+
+    public boolean isProtocolRefInWant() {
+        return protocolRefInWant;
+    }
+
+    public boolean isSshEnabled() {
+        return sshEnabled;
+    }
+
+    public int getSshPort() {
+        return sshPort;
+    }
+
+    public String getSshHostKeyPath() {
+        return sshHostKeyPath;
+    }
+
+    public int getSshNioWorkers() {
+        return sshNioWorkers;
+    }
+
+    public int getSshCommandThreads() {
+        return sshCommandThreads;
+    }
+
+    public boolean isUploadPackCacheEnabled() {
+        return uploadPackCacheEnabled;
+    }
+
+    public String getUploadPackCacheDirectory() {
+        return uploadPackCacheDirectory;
+    }
+
+    public long getUploadPackCacheMaxSize() {
+        return uploadPackCacheMaxSize.toBytes();
+    }
+
+    public long getUploadPackCacheMinSize() {
+        return uploadPackCacheMinSize.toBytes();
+    }
+
+    public boolean isCommitGraphEnabled() {
+        return commitGraphEnabled;
+    }
+
+    public boolean isCommitGraphChangedPaths() {
+        return commitGraphChangedPaths;
+    }
+
+    public boolean isBitmapsEnabled() {
+        return bitmapsEnabled;
+    }
+
+    public int getBitmapRefreshCommits() {
+        return bitmapRefreshCommits;
+    }
+
+    public WindowCacheConfig getWindowCacheConfig() {
+        WindowCacheConfig windowCacheConfig = new WindowCacheConfig();
+        windowCacheConfig.setPackedGitLimit(packedGitLimit.toBytes());
+        windowCacheConfig.setPackedGitWindowSize(Math.toIntExact(packedGitWindowSize.toBytes()));
+        windowCacheConfig.setPackedGitMMAP(packedGitMmap);
+        windowCacheConfig.setPackedGitOpenFiles(packedGitOpenFiles);
+        windowCacheConfig.setDeltaBaseCacheLimit(Math.toIntExact(deltaBaseCacheLimit.toBytes()));
+        windowCacheConfig.setStreamFileThreshold(Math.toIntExact(streamFileThreshold.toBytes()));
+        return windowCacheConfig;
     }
 
     public String getRepositoriesBasePath() {
@@ -35,6 +345,14 @@ public class GitServerConfig {
         return sshKeysBasePath;
     }
 
+    public int getRepositoryCacheMaxSize() {
+        return repositoryCacheMaxSize;
+    }
+
+    public long getRepositoryCacheIdleTimeoutSeconds() {
+        return repositoryCacheIdleTimeoutSeconds;
+    }
+
     public Path getRepositoryPath(String owner, String repoName) {
         return Paths.get(repositoriesBasePath, owner, repoName + ".git");
     }
@@ -0,0 +1,200 @@
+package com.gitserver.controller;
+
+import com.gitserver.cache.AheadBehindCache;
+import com.gitserver.cache.BlameCache;
+import com.gitserver.cache.CommitCache;
+import com.gitserver.cache.CommitWalkCache;
+import com.gitserver.cache.DiffCache;
+import com.gitserver.cache.ContentCache;
+import com.gitserver.cache.GitRepositoryCache;
+import com.gitserver.cache.RefResolutionCache;
+import com.gitserver.cache.RepositoryRegistry;
+import com.gitserver.cache.UploadPackCache;
+import com.gitserver.config.GitServerConfig;
+import com.gitserver.dto.AdvertisementStats;
+import com.gitserver.dto.BitmapCoverage;
+import com.gitserver.dto.BitmapStats;
+import com.gitserver.dto.CacheStats;
+import com.gitserver.dto.CommitGraphStats;
+import com.gitserver.dto.PackCacheStats;
+import com.gitserver.dto.RepositoryCacheStats;
+import com.gitserver.dto.RepositoryRegistryStats;
+import com.gitserver.dto.TransportStats;
+import com.gitserver.service.BitmapService;
+import com.gitserver.service.CommitGraphService;
+import com.gitserver.service.GitTransportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.eclipse.jgit.storage.file.WindowCacheStats;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * REST API controller for server administration and runtime statistics.
+ */
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+@Tag(name = "Administration", description = "APIs for inspecting server caches and runtime state")
+public class AdminController {
+
+    private final GitServerConfig config;
+    private final GitRepositoryCache repositoryCache;
+    private final RepositoryRegistry repositoryRegistry;
+    private final RefResolutionCache refCache;
+    private final ContentCache contentCache;
+    private final CommitWalkCache commitWalkCache;
+    private final CommitCache commitCache;
+    private final BlameCache blameCache;
+    private final DiffCache diffCache;
+    private final AheadBehindCache aheadBehindCache;
+    private final UploadPackCache uploadPackCache;
+    private final CommitGraphService commitGraphService;
+    private final BitmapService bitmapService;
+    private final GitTransportService transportService;
+
+    @GetMapping("/caches/repositories")
+    @Operation(summary = "Get repository cache statistics", description = "Returns hit/miss counts and open handles of the repository cache")
+    public ResponseEntity<RepositoryCacheStats> getRepositoryCacheStats() {
+        return ResponseEntity.ok(repositoryCache.getStats());
+    }
+
+    @GetMapping("/caches/pack")
+    @Operation(summary = "Get pack cache statistics", description = "Returns live JGit window cache statistics and the configured pack cache limits")
+    public ResponseEntity<PackCacheStats> getPackCacheStats() {
+        WindowCacheStats stats = WindowCacheStats.getStats();
+        WindowCacheConfig windowCacheConfig = config.getWindowCacheConfig();
+        return ResponseEntity.ok(PackCacheStats.builder()
+                .hitCount(stats.getHitCount())
+                .missCount(stats.getMissCount())
+                .hitRatio(stats.getHitRatio())
+                .evictionCount(stats.getEvictionCount())
+                .loadCount(stats.getLoadCount())
+                .averageLoadTimeNanos(stats.getAverageLoadTime())
+                .openBytes(stats.getOpenByteCount())
+                .openFiles(stats.getOpenFileCount())
+                .packedGitLimit(windowCacheConfig.getPackedGitLimit())
+                .windowSize(windowCacheConfig.getPackedGitWindowSize())
+                .mmap(windowCacheConfig.isPackedGitMMAP())
+                .openFilesLimit(windowCacheConfig.getPackedGitOpenFiles())
+                .deltaBaseCacheLimit(windowCacheConfig.getDeltaBaseCacheLimit())
+                .streamFileThreshold(windowCacheConfig.getStreamFileThreshold())
+                .build());
+    }
+
+    @GetMapping("/caches/refs")
+    @Operation(summary = "Get ref cache statistics", description = "Returns hit/miss counts of the ref resolution cache")
+    public ResponseEntity<CacheStats> getRefCacheStats() {
+        return ResponseEntity.ok(refCache.getStats());
+    }
+
+    @GetMapping("/caches/content")
+    @Operation(summary = "Get content cache statistics", description = "Returns hit rates and weights of the tree listing, path lookup and blob caches")
+    public ResponseEntity<List<CacheStats>> getContentCacheStats() {
+        return ResponseEntity.ok(contentCache.getStats());
+    }
+
+    @GetMapping("/caches/commit-walks")
+    @Operation(summary = "Get commit walk cache statistics", description = "Returns how often paginated history continued a cached walk")
+    public ResponseEntity<CacheStats> getCommitWalkCacheStats() {
+        return ResponseEntity.ok(commitWalkCache.getStats());
+    }
+
+    @GetMapping("/caches/commits")
+    @Operation(summary = "Get commit cache statistics", description = "Returns hit rate and weight of the parsed commit cache")
+    public ResponseEntity<CacheStats> getCommitCacheStats() {
+        return ResponseEntity.ok(commitCache.getStats());
+    }
+
+    @GetMapping("/caches/blame")
+    @Operation(summary = "Get blame cache statistics", description = "Returns hit rate and weight of the file blame cache")
+    public ResponseEntity<CacheStats> getBlameCacheStats() {
+        return ResponseEntity.ok(blameCache.getStats());
+    }
+
+    @GetMapping("/caches/diffs")
+    @Operation(summary = "Get diff cache statistics", description = "Returns hit rate and weight of the commit diff and comparison cache")
+    public ResponseEntity<CacheStats> getDiffCacheStats() {
+        return ResponseEntity.ok(diffCache.getStats());
+    }
+
+    @GetMapping("/caches/ahead-behind")
+    @Operation(summary = "Get ahead/behind cache statistics", description = "Returns hit rate of the branch ahead/behind count cache")
+    public ResponseEntity<CacheStats> getAheadBehindCacheStats() {
+        return ResponseEntity.ok(aheadBehindCache.getStats());
+    }
+
+    @GetMapping("/caches/upload-packs")
+    @Operation(summary = "Get clone pack cache statistics", description = "Returns hit rate and disk usage of the cache of complete clone responses")
+    public ResponseEntity<CacheStats> getUploadPackCacheStats() {
+        return ResponseEntity.ok(uploadPackCache.getStats());
+    }
+
+    @GetMapping("/registry")
+    @Operation(summary = "Get repository registry statistics", description = "Returns the size and estimated memory footprint of the in-memory repository registry")
+    public ResponseEntity<RepositoryRegistryStats> getRegistryStats() {
+        return ResponseEntity.ok(repositoryRegistry.getStats());
+    }
+
+    @PostMapping("/registry/reload")
+    @Operation(summary = "Reload the repository registry", description = "Rebuilds the in-memory repository registry from the database")
+    public ResponseEntity<RepositoryRegistryStats> reloadRegistry() {
+        repositoryRegistry.reload();
+        return ResponseEntity.ok(repositoryRegistry.getStats());
+    }
+
+    @GetMapping("/transport")
+    @Operation(summary = "Get Git transport statistics", description = "Returns request counts, bytes transferred and throughput "
+            + "of clone/fetch (upload-pack) and push (receive-pack) per transport")
+    public ResponseEntity<List<TransportStats>> getTransportStats() {
+        return ResponseEntity.ok(transportService.getStats());
+    }
+
+    @GetMapping("/transport/advertisements")
+    @Operation(summary = "Get ref advertisement statistics", description = "Returns the number and sizes of upload-pack ref advertisements "
+            + "per transport and protocol version (v0 full ref lists, v2 ls-refs responses)")
+    public ResponseEntity<List<AdvertisementStats>> getAdvertisementStats() {
+        return ResponseEntity.ok(transportService.getAdvertisementStats());
+    }
+
+    @GetMapping("/commit-graph")
+    @Operation(summary = "Get commit-graph statistics", description = "Returns how many commit-graphs were written and how many repositories await a refresh")
+    public ResponseEntity<CommitGraphStats> getCommitGraphStats() {
+        return ResponseEntity.ok(commitGraphService.getStats());
+    }
+
+    @PostMapping("/repos/{owner}/{repo}/commit-graph")
+    @Operation(summary = "Write a commit-graph", description = "Rewrites the commit-graph of a repository immediately")
+    public ResponseEntity<CommitGraphStats> writeCommitGraph(
+            @Parameter(description = "Repository owner") @PathVariable String owner,
+            @Parameter(description = "Repository name") @PathVariable String repo) {
+        return ResponseEntity.ok(commitGraphService.write(owner, repo));
+    }
+
+    @GetMapping("/bitmaps")
+    @Operation(summary = "Get bitmap statistics", description = "Returns how many bitmap repacks ran and how many repositories await a coverage check")
+    public ResponseEntity<BitmapStats> getBitmapStats() {
+        return ResponseEntity.ok(bitmapService.getStats());
+    }
+
+    @GetMapping("/repos/{owner}/{repo}/bitmaps")
+    @Operation(summary = "Get bitmap coverage", description = "Returns how many of a repository's ref tips and reachable commits are covered by reachability bitmaps")
+    public ResponseEntity<BitmapCoverage> getBitmapCoverage(
+            @Parameter(description = "Repository owner") @PathVariable String owner,
+            @Parameter(description = "Repository name") @PathVariable String repo) {
+        return ResponseEntity.ok(bitmapService.getCoverage(owner, repo));
+    }
+
+    @PostMapping("/repos/{owner}/{repo}/bitmaps")
+    @Operation(summary = "Write bitmaps", description = "Repacks a repository with reachability bitmaps immediately and returns its new coverage")
+    public ResponseEntity<BitmapCoverage> writeBitmaps(
+            @Parameter(description = "Repository owner") @PathVariable String owner,
+            @Parameter(description = "Repository name") @PathVariable String repo) {
+        return ResponseEntity.ok(bitmapService.write(owner, repo));
+    }
+}
@@ -1,15 +1,20 @@
 package com.gitserver.controller;
 
 import com.gitserver.dto.BranchInfo;
+import com.gitserver.dto.BranchPage;
 import com.gitserver.dto.CreateBranchRequest;
 import com.gitserver.service.BranchService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.util.List;
 
@@ -25,12 +30,33 @@ public class BranchController {
     private final BranchService branchService;
 
     @GetMapping
-    @Operation(summary = "List all branches", description = "Returns a list of all branches in the repository")
+    @Operation(summary = "List branches", description = "Returns a page of branches sorted by name or by latest commit, "
+            + "optionally filtered by prefix and with ahead/behind counts relative to the default branch; "
+            + "the next page is linked through the Link header and X-Next-Cursor")
     public ResponseEntity<List<BranchInfo>> listBranches(
             @Parameter(description = "Repository owner") @PathVariable String owner,
-            @Parameter(description = "Repository name") @PathVariable String repo) {
-        List<BranchInfo> branches = branchService.listBranches(owner, repo);
-        return ResponseEntity.ok(branches);
+            @Parameter(description = "Repository name") @PathVariable String repo,
+            @Parameter(description = "Only include branches whose name starts with this prefix") @RequestParam(required = false) String prefix,
+            @Parameter(description = "Sort order: name, or updated for the most recent commit first") @RequestParam(defaultValue = "name") String sort,
+            @Parameter(description = "Maximum number of branches to return") @RequestParam(defaultValue = "100") int limit,
+            @Parameter(description = "Opaque cursor from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Include the message and author of each branch's commit") @RequestParam(defaultValue = "true") boolean details,
+            @Parameter(description = "Include ahead/behind counts relative to the default branch") @RequestParam(defaultValue = "false") boolean aheadBehind,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified(branchService.getBranchesETag(owner, repo))) {
+            return null;
+        }
+        BranchPage page = branchService.getBranchPage(owner, repo, prefix, sort, limit, cursor, details, aheadBehind);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+        if (page.getNextCursor() != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", page.getNextCursor())
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                    .header("X-Next-Cursor", page.getNextCursor());
+        }
+        return response.body(page.getBranches());
     }
 
     @GetMapping("/{branch}")
@@ -38,9 +64,13 @@ public class BranchController {
     public ResponseEntity<BranchInfo> getBranch(
             @Parameter(description = "Repository owner") @PathVariable String owner,
             @Parameter(description = "Repository name") @PathVariable String repo,
-            @Parameter(description = "Branch name") @PathVariable String branch) {
+            @Parameter(description = "Branch name") @PathVariable String branch,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified(branchService.getBranchETag(owner, repo, branch))) {
+            return null;
+        }
         BranchInfo branchInfo = branchService.getBranch(owner, repo, branch);
-        return ResponseEntity.ok(branchInfo);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(branchInfo);
     }
 
     @PostMapping
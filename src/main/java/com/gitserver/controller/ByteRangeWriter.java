@@ -0,0 +1,197 @@
+package com.gitserver.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Writes a stream of known length to the servlet response, honouring single and
+ * multi-part {@code Range} requests. Data is copied through a fixed-size buffer so
+ * the full content is never held in memory.
+ * <p>
+ * Overlapping and adjacent ranges are coalesced, and a set of ranges that adds up to
+ * more than the content is answered with the whole content, so a request can never
+ * make the server send more than one copy.
+ */
+final class ByteRangeWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ByteRangeWriter() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Source of the content; may be opened more than once when ranges are out of order.
+     */
+    @FunctionalInterface
+    interface StreamSource {
+        InputStream open() throws IOException;
+    }
+
+    static void write(HttpServletRequest request, HttpServletResponse response, long length,
+                      String etag, StreamSource source) throws IOException {
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+
+        List<HttpRange> ranges = parseRanges(request, etag);
+        if (ranges.isEmpty()) {
+            writeFull(response, length, source);
+            return;
+        }
+
+        List<long[]> bounds = new ArrayList<>(ranges.size());
+        long requested = 0;
+        for (HttpRange range : ranges) {
+            long start = range.getRangeStart(length);
+            long end = range.getRangeEnd(length);
+            if (start >= length || end < start) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            bounds.add(new long[] {start, end});
+            requested += end - start + 1;
+        }
+        if (requested > length) {
+            // More bytes than the content itself, e.g. "0-,0-,0-": ignore the ranges
+            writeFull(response, length, source);
+            return;
+        }
+        bounds = coalesce(bounds);
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (bounds.size() == 1) {
+            long[] range = bounds.get(0);
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(range, length));
+            response.setContentLengthLong(range[1] - range[0] + 1);
+            try (InputStream in = source.open()) {
+                in.skipNBytes(range[0]);
+                copy(in, response.getOutputStream(), range[1] - range[0] + 1);
+            }
+            return;
+        }
+
+        writeMultipart(response, bounds, length, source);
+    }
+
+    private static void writeFull(HttpServletResponse response, long length, StreamSource source)
+            throws IOException {
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setContentLengthLong(length);
+        try (InputStream in = source.open()) {
+            copy(in, response.getOutputStream(), length);
+        }
+    }
+
+    /**
+     * Sort ranges by start and merge those that overlap or touch.
+     */
+    private static List<long[]> coalesce(List<long[]> bounds) {
+        List<long[]> sorted = new ArrayList<>(bounds);
+        sorted.sort(Comparator.comparingLong(range -> range[0]));
+        List<long[]> merged = new ArrayList<>(sorted.size());
+        for (long[] range : sorted) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(new long[] {range[0], range[1]});
+            }
+        }
+        return merged;
+    }
+
+    private static void writeMultipart(HttpServletResponse response, List<long[]> bounds, long length,
+                                       StreamSource source) throws IOException {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<byte[]> partHeaders = new ArrayList<>(bounds.size());
+        long contentLength = 0;
+        for (long[] range : bounds) {
+            byte[] header = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + MediaType.APPLICATION_OCTET_STREAM_VALUE + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + contentRange(range, length) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(header);
+            contentLength += header.length + range[1] - range[0] + 1;
+        }
+        byte[] trailer = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += trailer.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+
+        OutputStream out = response.getOutputStream();
+        InputStream in = null;
+        long position = 0;
+        try {
+            for (int i = 0; i < bounds.size(); i++) {
+                long[] range = bounds.get(i);
+                // Ranges are usually ascending; only reopen when one starts behind the current position
+                if (in == null || range[0] < position) {
+                    if (in != null) {
+                        in.close();
+                    }
+                    in = source.open();
+                    position = 0;
+                }
+                in.skipNBytes(range[0] - position);
+                out.write(partHeaders.get(i));
+                copy(in, out, range[1] - range[0] + 1);
+                position = range[1] + 1;
+            }
+        } finally {
+            if (in != null) {
+                in.close();
+            }
+        }
+        out.write(trailer);
+    }
+
+    private static List<HttpRange> parseRanges(HttpServletRequest request, String etag) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return List.of();
+        }
+        // A stale If-Range validator means the client's partial copy is outdated: send everything
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            return List.of();
+        }
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            // Malformed Range headers are ignored as per RFC 9110
+            return List.of();
+        }
+    }
+
+    private static String contentRange(long[] range, long length) {
+        return "bytes " + range[0] + "-" + range[1] + "/" + length;
+    }
+
+    private static void copy(InputStream in, OutputStream out, long count) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long remaining = count;
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new IOException("Unexpected end of stream with " + remaining + " bytes remaining");
+            }
+            out.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.gitserver.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gitserver.dto.DiffResult;
+import com.gitserver.service.DiffService;
+import com.gitserver.service.FileService;
+import com.gitserver.util.ETagUtil;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.lib.ObjectId;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * REST API controller for commit diffs and comparisons.
+ */
+@RestController
+@RequestMapping("/api/repos/{owner}/{repo}")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Diffs", description = "APIs for diffing commits and comparing refs")
+public class DiffController {
+
+    // Diffs between two full SHAs can never change
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).immutable();
+    private static final CacheControl REVALIDATE = CacheControl.noCache();
+
+    private static final UrlPathHelper URL_PATH_HELPER = new UrlPathHelper();
+
+    private final DiffService diffService;
+    private final FileService fileService;
+    private final ObjectMapper objectMapper;
+
+    @GetMapping("/commit/{sha}/diff")
+    @Operation(summary = "Get commit diff", description = "Returns the changes a commit made relative to its first parent, "
+            + "with renames detected; patches above the per-file or total size caps are left out")
+    public ResponseEntity<DiffResult> getCommitDiff(
+            @Parameter(description = "Repository owner") @PathVariable String owner,
+            @Parameter(description = "Repository name") @PathVariable String repo,
+            @Parameter(description = "Commit SHA") @PathVariable String sha,
+            @Parameter(description = "Only return per-file addition and deletion counts") @RequestParam(defaultValue = "false") boolean stats,
+            WebRequest webRequest) {
+        if (Representations.checkNotModified(webRequest, commitETag(owner, repo, sha))) {
+            return null;
+        }
+        DiffResult diff = diffService.getCommitDiff(owner, repo, sha, !stats);
+        return ResponseEntity.ok().cacheControl(cacheControl(sha)).body(diff);
+    }
+
+    @GetMapping(value = "/commit/{sha}/diff", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream commit diff", description = "Streams the changed files of a commit as one JSON object per line, "
+            + "ending with a summary line; only the per-file size cap applies")
+    public void streamCommitDiff(
+            @Parameter(description = "Repository owner") @PathVariable String owner,
+            @Parameter(description = "Repository name") @PathVariable String repo,
+            @Parameter(description = "Commit SHA") @PathVariable String sha,
+            @Parameter(description = "Only return per-file addition and deletion counts") @RequestParam(defaultValue = "false") boolean stats,
+            HttpServletResponse response,
+            WebRequest webRequest) throws IOException {
+        // Streamed patches skip the total size cap, so this is not the same content as the JSON diff
+        if (Representations.checkNotModified(webRequest, Representations.ndjsonETag(commitETag(owner, repo, sha)))) {
+            return;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl(sha).getHeaderValue());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        try (NdjsonWriter writer = new NdjsonWriter(objectMapper, response.getOutputStream())) {
+            DiffResult summary = diffService.streamCommitDiff(owner, repo, sha, !stats, writer::write);
+            writer.write(DiffSummary.of(summary));
+        } catch (IOException e) {
+            // Repository failures arrive as GitOperationException; this is the client going away
+            log.debug("Diff stream for {}/{} aborted: {}", owner, repo, e.getMessage());
+        }
+    }
+
+    @GetMapping("/compare/**")
+    @Operation(summary = "Compare refs", description = "Compares {base}...{head} (changes on head since the merge base) "
+            + "or {base}..{head} (the two trees directly), with renames detected")
+    public ResponseEntity<DiffResult> compare(
+            @Parameter(description = "Repository owner") @PathVariable String owner,
+            @Parameter(description = "Repository name") @PathVariable String repo,
+            @Parameter(description = "Only return per-file addition and deletion counts") @RequestParam(defaultValue = "false") boolean stats,
+            HttpServletRequest request,
+            WebRequest webRequest) {
+        CompareSpec spec = CompareSpec.parse(request, owner, repo);
+        if (Representations.checkNotModified(webRequest, compareETag(owner, repo, spec))) {
+            return null;
+        }
+        DiffResult diff = diffService.compare(owner, repo, spec.base(), spec.head(), spec.mergeBase(), !stats);
+        return ResponseEntity.ok().cacheControl(cacheControl(spec)).body(diff);
+    }
+
+    @GetMapping(value = "/compare/**", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream ref comparison", description = "Streams the changed files of a comparison as one JSON object "
+            + "per line, ending with a summary line; only the per-file size cap applies")
+    public void streamCompare(
+            @Parameter(description = "Repository owner") @PathVariable String owner,
+            @Parameter(description = "Repository name") @PathVariable String repo,
+            @Parameter(description = "Only return per-file addition and deletion counts") @RequestParam(defaultValue = "false") boolean stats,
+            HttpServletRequest request,
+            HttpServletResponse response,
+            WebRequest webRequest) throws IOException {
+        CompareSpec spec = CompareSpec.parse(request, owner, repo);
+        if (Representations.checkNotModified(webRequest, Representations.ndjsonETag(compareETag(owner, repo, spec)))) {
+            return;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl(spec).getHeaderValue());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        try (NdjsonWriter writer = new NdjsonWriter(objectMapper, response.getOutputStream())) {
+            DiffResult summary = diffService.streamCompare(owner, repo, spec.base(), spec.head(), spec.mergeBase(),
+                    !stats, writer::write);
+            writer.write(DiffSummary.of(summary));
+        } catch (IOException e) {
+            // Repository failures arrive as GitOperationException; this is the client going away
+            log.debug("Compare stream for {}/{} aborted: {}", owner, repo, e.getMessage());
+        }
+    }
+
+    private String commitETag(String owner, String repo, String sha) {
+        return ETagUtil.fromObjectId(fileService.resolveRefId(owner, repo, sha));
+    }
+
+    private String compareETag(String owner, String repo, CompareSpec spec) {
+        ObjectId base = fileService.resolveRefId(owner, repo, spec.base());
+        ObjectId head = fileService.resolveRefId(owner, repo, spec.head());
+        return ETagUtil.fromObjectIds(base, head);
+    }
+
+    private static CacheControl cacheControl(String ref) {
+        return ObjectId.isId(ref) ? IMMUTABLE : REVALIDATE;
+    }
+
+    private static CacheControl cacheControl(CompareSpec spec) {
+        return ObjectId.isId(spec.base()) && ObjectId.isId(spec.head()) ? IMMUTABLE : REVALIDATE;
+    }
+
+    /**
+     * The refs of a {@code base...head} or {@code base..head} comparison.
+     */
+    private record CompareSpec(String base, String head, boolean mergeBase) {
+
+        static CompareSpec parse(HttpServletRequest request, String owner, String repo) {
+            String prefix = "/api/repos/" + owner + "/" + repo + "/compare/";
+            // Decoded and without the context path, unlike the raw request URI
+            String spec = URL_PATH_HELPER.getPathWithinApplication(request).substring(prefix.length());
+            // Ref names cannot contain "..", so the first occurrence separates the two refs
+            int separator = spec.indexOf("..");
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected a comparison of the form base...head or base..head");
+            }
+            boolean mergeBase = spec.startsWith("...", separator);
+            String head = spec.substring(separator + (mergeBase ? 3 : 2));
+            if (head.isEmpty()) {
+                throw new IllegalArgumentException("Expected a comparison of the form base...head or base..head");
+            }
+            return new CompareSpec(spec.substring(0, separator), head, mergeBase);
+        }
+    }
+
+    private record DiffSummary(String baseCommit, String headCommit, int changedFiles, int additions,
+                               int deletions, boolean truncated) {
+
+        static DiffSummary of(DiffResult result) {
+            return new DiffSummary(result.getBaseCommit(), result.getHeadCommit(), result.getChangedFiles(),
+                    result.getAdditions(), result.getDeletions(), result.isTruncated());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.gitserver.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.gitserver.dto.FileContent;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Writes a {@link FileContent} response whose base64 content is encoded straight from
+ * the blob stream, so neither the raw bytes nor the encoded string are held in memory.
+ */
+final class FileContentWriter {
+
+    private FileContentWriter() {
+        // Private constructor to prevent instantiation
+    }
+
+    static void writeStreaming(ObjectMapper objectMapper, HttpServletResponse response, FileContent metadata,
+                               ByteRangeWriter.StreamSource source) throws IOException {
+        ObjectNode fields = objectMapper.valueToTree(metadata);
+        fields.remove("content");
+        fields.put("encoding", "base64");
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+             InputStream in = source.open()) {
+            generator.writeStartObject();
+            Iterator<Map.Entry<String, JsonNode>> it = fields.fields();
+            while (it.hasNext()) {
+                Map.Entry<String, JsonNode> field = it.next();
+                generator.writeFieldName(field.getKey());
+                generator.writeTree(field.getValue());
+            }
+            generator.writeFieldName("content");
+            generator.writeBinary(in, Math.toIntExact(metadata.getSize()));
+            generator.writeEndObject();
+        }
+    }
+}
@@ -1,16 +1,35 @@
 package com.gitserver.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gitserver.dto.CommitInfo;
+import com.gitserver.dto.FileBlame;
+import com.gitserver.dto.CommitPage;
 import com.gitserver.dto.FileContent;
+import com.gitserver.dto.RecursiveTree;
 import com.gitserver.dto.TreeEntry;
+import com.gitserver.service.BlameService;
 import com.gitserver.service.FileService;
+import com.gitserver.util.ETagUtil;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.lib.ObjectId;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UrlPathHelper;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -19,10 +38,19 @@ import java.util.List;
 @RestController
 @RequestMapping("/api/repos/{owner}/{repo}")
 @RequiredArgsConstructor
+@Slf4j
 @Tag(name = "File Browsing", description = "APIs for browsing repository files and directories")
 public class FileController {
 
+    // Responses addressed by a full SHA can never change
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).immutable();
+    private static final CacheControl REVALIDATE = CacheControl.noCache();
+
+    private static final UrlPathHelper URL_PATH_HELPER = new UrlPathHelper();
+
     private final FileService fileService;
+    private final BlameService blameService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/tree/{ref}")
     @Operation(summary = "Get directory tree", description = "Returns the file tree at a specific ref (branch, tag, or commit)")
@@ -30,36 +58,197 @@ public class FileController {
             @Parameter(description = "Repository owner") @PathVariable String owner,
             @Parameter(description = "Repository name") @PathVariable String repo,
             @Parameter(description = "Git ref (branch, tag, or commit SHA)") @PathVariable String ref,
-            @Parameter(description = "Directory path (optional)") @RequestParam(required = false) String path) {
-        List<TreeEntry> entries = fileService.getTree(owner, repo, ref, path);
-        return ResponseEntity.ok(entries);
+            @Parameter(description = "Directory path (optional)") @RequestParam(required = false) String path,
+            @Parameter(description = "Include file sizes") @RequestParam(defaultValue = "true") boolean sizes,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified(refETag(owner, repo, ref))) {
+            return null;
+        }
+        List<TreeEntry> entries = fileService.getTree(owner, repo, ref, path, sizes);
+        return ResponseEntity.ok().cacheControl(cacheControl(ref)).body(entries);
+    }
+
+    @GetMapping(value = "/tree/{ref}", params = "recursive=true")
+    @Operation(summary = "Get recursive directory tree", description = "Returns every entry below a path as nested children, "
+            + "read in a single tree walk and bounded by depth and entry limits")
+    public ResponseEntity<RecursiveTree> getRecursiveTree(
+            @Parameter(description = "Repository owner") @PathVariable String owner,
+            @Parameter(description = "Repository name") @PathVariable String repo,
+            @Parameter(description = "Git ref (branch, tag, or commit SHA)") @PathVariable String ref,
+            @Parameter(description = "Directory path (optional)") @RequestParam(required = false) String path,
+            @Parameter(description = "Maximum directory depth (capped by server config)") @RequestParam(required = false) Integer maxDepth,
+            @Parameter(description = "Maximum number of entries (capped by server config)") @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Include file sizes") @RequestParam(defaultValue = "true") boolean sizes,
+            WebRequest webRequest) {
+        if (Representations.checkNotModified(webRequest, refETag(owner, repo, ref))) {
+            return null;
+        }
+        RecursiveTree tree = fileService.getRecursiveTree(owner, repo, ref, path, maxDepth, limit, sizes);
+        return ResponseEntity.ok().cacheControl(cacheControl(ref)).body(tree);
+    }
+
+    @GetMapping(value = "/tree/{ref}", params = "recursive=true", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream recursive directory tree", description = "Streams every entry below a path as one JSON "
+            + "object per line in tree order, ending with a {\"count\", \"truncated\"} summary line")
+    public void streamRecursiveTree(
+            @Parameter(description = "Repository owner") @PathVariable String owner,
+            @Parameter(description = "Repository name") @PathVariable String repo,
+            @Parameter(description = "Git ref (branch, tag, or commit SHA)") @PathVariable String ref,
+            @Parameter(description = "Directory path (optional)") @RequestParam(required = false) String path,
+            @Parameter(description = "Maximum directory depth (capped by server config)") @RequestParam(required = false) Integer maxDepth,
+            @Parameter(description = "Maximum number of entries (capped by server config)") @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Include file sizes") @RequestParam(defaultValue = "true") boolean sizes,
+            jakarta.servlet.http.HttpServletResponse response,
+            WebRequest webRequest) throws IOException {
+        if (Representations.checkNotModified(webRequest, Representations.ndjsonETag(refETag(owner, repo, ref)))) {
+            return;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl(ref).getHeaderValue());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        try (NdjsonWriter writer = new NdjsonWriter(objectMapper, response.getOutputStream())) {
+            int[] count = new int[1];
+            boolean truncated = fileService.walkTree(owner, repo, ref, path, maxDepth, limit, sizes, (entry, depth) -> {
+                writer.write(entry);
+                count[0]++;
+            });
+            writer.write(new TreeSummary(count[0], truncated));
+        } catch (IOException e) {
+            // Repository failures arrive as GitOperationException; this is the client going away
+            log.debug("Tree stream for {}/{} aborted: {}", owner, repo, e.getMessage());
+        }
     }
 
     @GetMapping("/contents/{ref}/**")
-    @Operation(summary = "Get file content", description = "Returns the content of a file at a specific ref")
-    public ResponseEntity<FileContent> getFileContent(
+    @Operation(summary = "Get file content", description = "Returns the content of a file at a specific ref; "
+            + "text up to the stream threshold is UTF-8, binary and anything above the stream threshold is base64, "
+            + "and files above the inline limit only carry a downloadUrl",
+            responses = @ApiResponse(responseCode = "200",
+                    content = @Content(schema = @Schema(implementation = FileContent.class))))
+    public void getFileContent(
+            @Parameter(description = "Repository owner") @PathVariable String owner,
+            @Parameter(description = "Repository name") @PathVariable String repo,
+            @Parameter(description = "Git ref (branch, tag, or commit SHA)") @PathVariable String ref,
+            jakarta.servlet.http.HttpServletRequest request,
+            jakarta.servlet.http.HttpServletResponse response,
+            WebRequest webRequest) throws IOException {
+        String filePath = extractFilePath(request, owner, repo, "contents", ref);
+
+        if (webRequest.checkNotModified(refETag(owner, repo, ref))) {
+            return;
+        }
+        try (FileService.RawBlob blob = fileService.openRawBlob(owner, repo, ref, filePath)) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl(ref).getHeaderValue());
+            if (fileService.isStreamedContent(blob)) {
+                FileContent metadata = fileService.describeFile(owner, repo, ref, filePath, blob);
+                FileContentWriter.writeStreaming(objectMapper, response, metadata, blob::openStream);
+                return;
+            }
+            FileContent content = fileService.readFileContent(owner, repo, ref, filePath, blob);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), content);
+        }
+    }
+
+    @GetMapping("/raw/{ref}/**")
+    @Operation(summary = "Get raw file content", description = "Streams the raw bytes of a file at a specific ref, with HTTP Range support")
+    public void getRawContent(
             @Parameter(description = "Repository owner") @PathVariable String owner,
             @Parameter(description = "Repository name") @PathVariable String repo,
             @Parameter(description = "Git ref (branch, tag, or commit SHA)") @PathVariable String ref,
-            jakarta.servlet.http.HttpServletRequest request) {
-        // Extract the file path from the request URI
-        String requestUri = request.getRequestURI();
-        String prefix = "/api/repos/" + owner + "/" + repo + "/contents/" + ref + "/";
-        String filePath = requestUri.substring(prefix.length());
-        
-        FileContent content = fileService.getFileContent(owner, repo, ref, filePath);
-        return ResponseEntity.ok(content);
+            jakarta.servlet.http.HttpServletRequest request,
+            jakarta.servlet.http.HttpServletResponse response,
+            WebRequest webRequest) throws IOException {
+        String filePath = extractFilePath(request, owner, repo, "raw", ref);
+
+        String etag = refETag(owner, repo, ref);
+        if (webRequest.checkNotModified(etag)) {
+            return;
+        }
+        try (FileService.RawBlob blob = fileService.openRawBlob(owner, repo, ref, filePath)) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl(ref).getHeaderValue());
+            ByteRangeWriter.write(request, response, blob.getSize(), etag, blob::openStream);
+        }
+    }
+
+    @GetMapping("/blame/{ref}/**")
+    @Operation(summary = "Blame a file", description = "Returns the commit that last changed each line of a file at a specific ref, "
+            + "grouped into hunks; pass start and end to blame only those lines")
+    public ResponseEntity<FileBlame> getBlame(
+            @Parameter(description = "Repository owner") @PathVariable String owner,
+            @Parameter(description = "Repository name") @PathVariable String repo,
+            @Parameter(description = "Git ref (branch, tag, or commit SHA)") @PathVariable String ref,
+            @Parameter(description = "First line to blame (1-based)") @RequestParam(required = false) Integer start,
+            @Parameter(description = "Last line to blame (inclusive)") @RequestParam(required = false) Integer end,
+            jakarta.servlet.http.HttpServletRequest request,
+            WebRequest webRequest) {
+        String filePath = extractFilePath(request, owner, repo, "blame", ref);
+
+        if (webRequest.checkNotModified(refETag(owner, repo, ref))) {
+            return null;
+        }
+        FileBlame blame = blameService.getBlame(owner, repo, ref, filePath, start, end);
+        return ResponseEntity.ok().cacheControl(cacheControl(ref)).body(blame);
     }
 
     @GetMapping("/commits/{ref}")
-    @Operation(summary = "Get commit history", description = "Returns the commit history for a specific ref")
+    @Operation(summary = "Get commit history", description = "Returns a page of commit history for a specific ref; "
+            + "the next page is linked through the Link header and X-Next-Cursor")
     public ResponseEntity<List<CommitInfo>> getCommits(
             @Parameter(description = "Repository owner") @PathVariable String owner,
             @Parameter(description = "Repository name") @PathVariable String repo,
             @Parameter(description = "Git ref (branch, tag, or commit SHA)") @PathVariable String ref,
-            @Parameter(description = "Maximum number of commits to return") @RequestParam(defaultValue = "30") int limit) {
-        List<CommitInfo> commits = fileService.getCommits(owner, repo, ref, limit);
-        return ResponseEntity.ok(commits);
+            @Parameter(description = "Only include commits that changed this file or directory") @RequestParam(required = false) String path,
+            @Parameter(description = "Maximum number of commits to return") @RequestParam(defaultValue = "30") int limit,
+            @Parameter(description = "Opaque cursor from the previous page") @RequestParam(required = false) String cursor,
+            WebRequest webRequest) {
+        if (Representations.checkNotModified(webRequest, refETag(owner, repo, ref))) {
+            return null;
+        }
+        CommitPage page = fileService.getCommitPage(owner, repo, ref, path, limit, cursor);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(cacheControl(ref));
+        if (page.getNextCursor() != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", page.getNextCursor())
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                    .header("X-Next-Cursor", page.getNextCursor());
+        }
+        return response.body(page.getCommits());
+    }
+
+    @GetMapping(value = "/commits/{ref}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream commit history", description = "Streams the full history of a ref as one JSON object "
+            + "per line while the walk advances, ending with a {\"count\"} summary line; the walk stops if the client disconnects")
+    public void streamCommits(
+            @Parameter(description = "Repository owner") @PathVariable String owner,
+            @Parameter(description = "Repository name") @PathVariable String repo,
+            @Parameter(description = "Git ref (branch, tag, or commit SHA)") @PathVariable String ref,
+            @Parameter(description = "Only include commits that changed this file or directory") @RequestParam(required = false) String path,
+            @Parameter(description = "Maximum number of commits to stream (unbounded if omitted)") @RequestParam(required = false) Long limit,
+            jakarta.servlet.http.HttpServletResponse response,
+            WebRequest webRequest) throws IOException {
+        if (Representations.checkNotModified(webRequest, Representations.ndjsonETag(refETag(owner, repo, ref)))) {
+            return;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl(ref).getHeaderValue());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        try (NdjsonWriter writer = new NdjsonWriter(objectMapper, response.getOutputStream())) {
+            boolean[] first = {true};
+            long count = fileService.walkCommits(owner, repo, ref, path, limit, commit -> {
+                writer.write(commit);
+                // Get the first commit out immediately; after that, writes block once the buffers fill
+                if (first[0]) {
+                    writer.flush();
+                    response.flushBuffer();
+                    first[0] = false;
+                }
+            });
+            writer.write(new CommitSummary(count));
+        } catch (IOException e) {
+            // Repository failures arrive as GitOperationException; this is the client going away
+            log.debug("Commit stream for {}/{} aborted: {}", owner, repo, e.getMessage());
+        }
     }
 
     @GetMapping("/commit/{sha}")
@@ -67,8 +256,34 @@ public class FileController {
     public ResponseEntity<CommitInfo> getCommit(
             @Parameter(description = "Repository owner") @PathVariable String owner,
             @Parameter(description = "Repository name") @PathVariable String repo,
-            @Parameter(description = "Commit SHA") @PathVariable String sha) {
+            @Parameter(description = "Commit SHA") @PathVariable String sha,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified(refETag(owner, repo, sha))) {
+            return null;
+        }
         CommitInfo commit = fileService.getCommit(owner, repo, sha);
-        return ResponseEntity.ok(commit);
+        return ResponseEntity.ok().cacheControl(cacheControl(sha)).body(commit);
+    }
+
+    private record TreeSummary(int count, boolean truncated) {
+    }
+
+    private record CommitSummary(long count) {
+    }
+
+    private static String extractFilePath(jakarta.servlet.http.HttpServletRequest request,
+                                          String owner, String repo, String endpoint, String ref) {
+        // Extract the file path from the decoded request path, without the context path
+        String requestUri = URL_PATH_HELPER.getPathWithinApplication(request);
+        String prefix = "/api/repos/" + owner + "/" + repo + "/" + endpoint + "/" + ref + "/";
+        return requestUri.substring(prefix.length());
+    }
+
+    private String refETag(String owner, String repo, String ref) {
+        return ETagUtil.fromObjectId(fileService.resolveRefId(owner, repo, ref));
+    }
+
+    private static CacheControl cacheControl(String ref) {
+        return ObjectId.isId(ref) ? IMMUTABLE : REVALIDATE;
     }
 }
@@ -0,0 +1,119 @@
+package com.gitserver.controller;
+
+import com.gitserver.cache.RegisteredRepository;
+import com.gitserver.cache.RepositoryRegistry;
+import com.gitserver.config.GitServerConfig;
+import com.gitserver.service.GitTransportService;
+import io.swagger.v3.oas.annotations.Hidden;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Smart HTTP Git transport, serving clone, fetch and push at the repositories' clone URLs.
+ * <p>
+ * Implements the three requests of the smart protocol directly on the servlet streams:
+ * the ref advertisement ({@code GET info/refs?service=...}) and the upload-pack and
+ * receive-pack exchanges ({@code POST git-upload-pack} / {@code git-receive-pack}).
+ * Request bodies may be gzip-compressed, as Git does for large negotiations.
+ * <p>
+ * There is no authentication: private repositories are not served at all, and pushing
+ * is only accepted when {@code git.server.http.receive-pack} is enabled.
+ */
+@Hidden
+@RestController
+@RequestMapping("/git/{owner}/{repo}")
+@RequiredArgsConstructor
+public class GitHttpController {
+
+    private static final String GIT_PROTOCOL_HEADER = "Git-Protocol";
+
+    private final GitServerConfig config;
+    private final GitTransportService transportService;
+    private final RepositoryRegistry repositoryRegistry;
+
+    @GetMapping("/info/refs")
+    public void infoRefs(@PathVariable String owner, @PathVariable String repo,
+                         @RequestParam(required = false) String service,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!GitTransportService.UPLOAD_PACK.equals(service) && !GitTransportService.RECEIVE_PACK.equals(service)) {
+            // The dumb protocol would need the repository files served as-is
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "Only the smart HTTP protocol is supported");
+            return;
+        }
+        if (isPrivate(owner, repo)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (GitTransportService.RECEIVE_PACK.equals(service) && !config.isHttpReceivePack()) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "Pushing over HTTP is disabled");
+            return;
+        }
+        response.setContentType("application/x-" + service + "-advertisement");
+        noCache(response);
+        transportService.advertiseRefs(owner, repositoryName(repo), "http", service,
+                request.getHeader(GIT_PROTOCOL_HEADER), response.getOutputStream());
+    }
+
+    @PostMapping(value = "/git-upload-pack", consumes = "application/x-git-upload-pack-request")
+    public void uploadPack(@PathVariable String owner, @PathVariable String repo,
+                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (isPrivate(owner, repo)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        response.setContentType("application/x-git-upload-pack-result");
+        noCache(response);
+        transportService.uploadPack(owner, repositoryName(repo), "http", request.getHeader(GIT_PROTOCOL_HEADER),
+                true, requestBody(request), response.getOutputStream(), null);
+    }
+
+    @PostMapping(value = "/git-receive-pack", consumes = "application/x-git-receive-pack-request")
+    public void receivePack(@PathVariable String owner, @PathVariable String repo,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (isPrivate(owner, repo)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!config.isHttpReceivePack()) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "Pushing over HTTP is disabled");
+            return;
+        }
+        response.setContentType("application/x-git-receive-pack-result");
+        noCache(response);
+        transportService.receivePack(owner, repositoryName(repo), "http", true, requestBody(request),
+                response.getOutputStream(), null);
+    }
+
+    /**
+     * Private repositories are answered as missing, since anonymous clients cannot be allowed to read them.
+     */
+    private boolean isPrivate(String owner, String repo) {
+        RegisteredRepository registered = repositoryRegistry.lookup(owner, repositoryName(repo));
+        return registered != null && registered.isPrivate();
+    }
+
+    private static String repositoryName(String repo) {
+        return repo.endsWith(".git") ? repo.substring(0, repo.length() - ".git".length()) : repo;
+    }
+
+    private static InputStream requestBody(HttpServletRequest request) throws IOException {
+        String encoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        if ("gzip".equalsIgnoreCase(encoding) || "x-gzip".equalsIgnoreCase(encoding)) {
+            return new GZIPInputStream(request.getInputStream());
+        }
+        return request.getInputStream();
+    }
+
+    private static void noCache(HttpServletResponse response) {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache, max-age=0, must-revalidate");
+        response.setHeader(HttpHeaders.PRAGMA, "no-cache");
+        response.setHeader(HttpHeaders.EXPIRES, "Fri, 01 Jan 1980 00:00:00 GMT");
+    }
+}
@@ -0,0 +1,43 @@
+package com.gitserver.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes newline-delimited JSON through one generator, flushing only when its buffer
+ * fills rather than after every value.
+ */
+final class NdjsonWriter implements AutoCloseable {
+
+    private final ObjectWriter writer;
+    private final JsonGenerator generator;
+
+    NdjsonWriter(ObjectMapper objectMapper, OutputStream out) throws IOException {
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.generator = objectMapper.getFactory().createGenerator(out);
+        // Values are separated by explicit newlines instead of the default space
+        this.generator.setRootValueSeparator(null);
+    }
+
+    void write(Object value) throws IOException {
+        writer.writeValue(generator, value);
+        generator.writeRaw('\n');
+    }
+
+    /**
+     * Push everything written so far to the client.
+     */
+    void flush() throws IOException {
+        generator.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
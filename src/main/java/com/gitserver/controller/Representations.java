@@ -0,0 +1,42 @@
+package com.gitserver.controller;
+
+import com.gitserver.util.ETagUtil;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Helpers for resources served as both JSON and NDJSON at the same URL, chosen by
+ * {@code Accept}. The two are different bytes, so each gets its own entity tag and
+ * every response, 304s included, varies on {@code Accept}.
+ */
+final class Representations {
+
+    private static final String NDJSON_VARIANT = "ndjson";
+
+    private Representations() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Check the request's validators against an entity tag, marking the response as
+     * varying on {@code Accept} first so a 304 carries the header too.
+     */
+    static boolean checkNotModified(WebRequest webRequest, String etag) {
+        if (webRequest instanceof ServletWebRequest servletRequest) {
+            HttpServletResponse response = servletRequest.getResponse();
+            if (response != null) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            }
+        }
+        return webRequest.checkNotModified(etag);
+    }
+
+    /**
+     * Get the entity tag of the NDJSON representation of a resource from that of its JSON one.
+     */
+    static String ndjsonETag(String etag) {
+        return ETagUtil.withVariant(etag, NDJSON_VARIANT);
+    }
+}
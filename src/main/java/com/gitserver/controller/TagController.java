@@ -2,14 +2,19 @@ package com.gitserver.controller;
 
 import com.gitserver.dto.CreateTagRequest;
 import com.gitserver.dto.TagInfo;
+import com.gitserver.dto.TagPage;
 import com.gitserver.service.TagService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.util.List;
 
@@ -25,12 +30,31 @@ public class TagController {
     private final TagService tagService;
 
     @GetMapping
-    @Operation(summary = "List all tags", description = "Returns a list of all tags in the repository")
+    @Operation(summary = "List tags", description = "Returns a page of tags sorted by name or by version (highest first), "
+            + "optionally filtered by prefix; the next page is linked through the Link header and X-Next-Cursor")
     public ResponseEntity<List<TagInfo>> listTags(
             @Parameter(description = "Repository owner") @PathVariable String owner,
-            @Parameter(description = "Repository name") @PathVariable String repo) {
-        List<TagInfo> tags = tagService.listTags(owner, repo);
-        return ResponseEntity.ok(tags);
+            @Parameter(description = "Repository name") @PathVariable String repo,
+            @Parameter(description = "Only include tags whose name starts with this prefix") @RequestParam(required = false) String prefix,
+            @Parameter(description = "Sort order: name, or version for the highest version first") @RequestParam(defaultValue = "name") String sort,
+            @Parameter(description = "Maximum number of tags to return") @RequestParam(defaultValue = "100") int limit,
+            @Parameter(description = "Opaque cursor from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Include tag messages, taggers and times, which requires reading each tag") @RequestParam(defaultValue = "true") boolean details,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified(tagService.getTagsETag(owner, repo))) {
+            return null;
+        }
+        TagPage page = tagService.getTagPage(owner, repo, prefix, sort, limit, cursor, details);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+        if (page.getNextCursor() != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", page.getNextCursor())
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                    .header("X-Next-Cursor", page.getNextCursor());
+        }
+        return response.body(page.getTags());
     }
 
     @GetMapping("/{tag}")
@@ -38,9 +62,13 @@ public class TagController {
     public ResponseEntity<TagInfo> getTag(
             @Parameter(description = "Repository owner") @PathVariable String owner,
             @Parameter(description = "Repository name") @PathVariable String repo,
-            @Parameter(description = "Tag name") @PathVariable String tag) {
+            @Parameter(description = "Tag name") @PathVariable String tag,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified(tagService.getTagETag(owner, repo, tag))) {
+            return null;
+        }
         TagInfo tagInfo = tagService.getTag(owner, repo, tag);
-        return ResponseEntity.ok(tagInfo);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(tagInfo);
     }
 
     @PostMapping
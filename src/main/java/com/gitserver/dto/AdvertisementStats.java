@@ -0,0 +1,23 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * DTO for the sizes of upload-pack ref advertisements of one protocol version on one transport.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AdvertisementStats {
+    private String transport;
+    private String protocol; // v0 (full ref list) or v2 (ls-refs responses)
+    private long advertisements;
+    private long refPrefixed; // v2 ls-refs requests narrowed by ref-prefix
+    private long totalBytes;
+    private long maxBytes;
+    private double averageBytes;
+}
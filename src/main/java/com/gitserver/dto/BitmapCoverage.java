@@ -0,0 +1,22 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * DTO for how much of a repository's history its reachability bitmaps cover.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BitmapCoverage {
+    private boolean bitmapIndex;
+    private int tips;
+    private int tipsWithBitmap;
+    private long coveredCommits;
+    private long uncoveredCommits; // reachable commits a walk still has to parse one by one
+    private double coverage; // covered share of all reachable commits
+}
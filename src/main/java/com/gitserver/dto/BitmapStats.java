@@ -0,0 +1,22 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * DTO for reachability bitmap maintenance statistics.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BitmapStats {
+    private boolean enabled;
+    private int refreshCommits;
+    private int pending;
+    private long written;
+    private long failures;
+    private long lastWriteMillis;
+}
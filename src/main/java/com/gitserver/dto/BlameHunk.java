@@ -0,0 +1,25 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * DTO for a run of consecutive lines last changed by the same commit.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BlameHunk {
+    private int startLine; // 1-based line in the blamed file
+    private int lineCount;
+    private String commitId;
+    private String commitMessage;
+    private String author;
+    private String authorEmail;
+    private long authorTime;
+    private String sourcePath; // path of the file in the blamed commit, differs after renames
+    private int sourceStartLine; // 1-based line in sourcePath at commitId
+}
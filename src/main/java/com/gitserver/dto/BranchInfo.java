@@ -1,5 +1,6 @@
 package com.gitserver.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -18,6 +19,13 @@ public class BranchInfo {
     private String commitMessage;
     private String author;
     private String authorEmail;
-    private long commitTime;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long commitTime; // unknown in name-sorted listings without details
     private boolean isDefault;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer aheadBy; // commits on this branch that are not on the default branch, if requested
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer behindBy; // commits on the default branch that are not on this branch, if requested
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean aheadBehindTruncated; // true if a count stopped at the configured walk limit
 }
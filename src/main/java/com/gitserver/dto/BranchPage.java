@@ -0,0 +1,19 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.util.List;
+
+/**
+ * DTO for a page of branches.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BranchPage {
+    private List<BranchInfo> branches;
+    private String nextCursor; // null on the last page
+}
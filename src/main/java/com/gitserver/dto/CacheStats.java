@@ -0,0 +1,24 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * DTO for the statistics of an in-process cache.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CacheStats {
+    private String name;
+    private long size;
+    private long weightBytes;
+    private long maxWeightBytes;
+    private long hits;
+    private long misses;
+    private double hitRatio;
+    private long evictions;
+}
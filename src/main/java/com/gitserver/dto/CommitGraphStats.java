@@ -0,0 +1,22 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * DTO for commit-graph maintenance statistics.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CommitGraphStats {
+    private boolean enabled;
+    private boolean changedPaths;
+    private int pending;
+    private long written;
+    private long failures;
+    private long lastWriteMillis;
+}
@@ -0,0 +1,19 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.util.List;
+
+/**
+ * DTO for a page of commit history.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CommitPage {
+    private List<CommitInfo> commits;
+    private String nextCursor; // null on the last page
+}
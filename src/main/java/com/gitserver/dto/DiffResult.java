@@ -0,0 +1,24 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.util.List;
+
+/**
+ * DTO for the diff between two commits.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DiffResult {
+    private String baseCommit; // null when diffing a root commit
+    private String headCommit;
+    private List<FileDiff> files;
+    private int changedFiles;
+    private int additions;
+    private int deletions;
+    private boolean truncated; // true if any patch was left out because of a size cap
+}
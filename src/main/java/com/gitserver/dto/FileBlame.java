@@ -0,0 +1,21 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.util.List;
+
+/**
+ * DTO for the blame of a file, or of a range of its lines.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FileBlame {
+    private String path;
+    private String commitId;
+    private int lineCount; // total lines in the file, not just the requested range
+    private List<BlameHunk> hunks;
+}
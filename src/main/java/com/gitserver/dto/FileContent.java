@@ -20,4 +20,5 @@ public class FileContent {
     private String content;
     private String encoding;
     private String type;
+    private String downloadUrl;
 }
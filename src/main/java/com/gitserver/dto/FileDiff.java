@@ -0,0 +1,29 @@
+package com.gitserver.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * DTO for the changes made to a single file.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class FileDiff {
+    private String changeType; // ADD, MODIFY, DELETE, RENAME or COPY
+    private String oldPath; // null for added files
+    private String newPath; // null for deleted files
+    private String oldSha;
+    private String newSha;
+    private int similarity; // for renames and copies
+    private int additions;
+    private int deletions;
+    private boolean binary;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String patch; // unified diff, null in stats mode or when truncated
+    private boolean truncated; // true if the patch was left out because of a size cap
+}
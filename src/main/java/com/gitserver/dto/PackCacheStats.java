@@ -0,0 +1,30 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * DTO for JGit pack window cache statistics and configuration.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PackCacheStats {
+    private long hitCount;
+    private long missCount;
+    private double hitRatio;
+    private long evictionCount;
+    private long loadCount;
+    private double averageLoadTimeNanos;
+    private long openBytes;
+    private long openFiles;
+    private long packedGitLimit;
+    private int windowSize;
+    private boolean mmap;
+    private int openFilesLimit;
+    private int deltaBaseCacheLimit;
+    private int streamFileThreshold;
+}
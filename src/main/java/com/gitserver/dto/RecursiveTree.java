@@ -0,0 +1,20 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.util.List;
+
+/**
+ * DTO for a recursive tree listing with nested children.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RecursiveTree {
+    private List<TreeEntry> entries;
+    private int count;
+    private boolean truncated; // true if the entry limit was reached
+}
@@ -0,0 +1,23 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * DTO for repository cache statistics.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RepositoryCacheStats {
+    private int size;
+    private int maxSize;
+    private long hits;
+    private long misses;
+    private double hitRatio;
+    private long evictions;
+    private int openHandles;
+}
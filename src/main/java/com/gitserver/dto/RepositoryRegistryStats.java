@@ -0,0 +1,21 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * DTO for in-memory repository registry statistics.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RepositoryRegistryStats {
+    private int size;
+    private long estimatedBytes;
+    private long lookups;
+    private long misses;
+    private long lastLoadMillis;
+}
@@ -1,5 +1,6 @@
 package com.gitserver.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -18,6 +19,7 @@ public class TagInfo {
     private String message;
     private String tagger;
     private String taggerEmail;
-    private long tagTime;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long tagTime; // unknown in listings without details and for annotated tags without a tagger
     private boolean isAnnotated;
 }
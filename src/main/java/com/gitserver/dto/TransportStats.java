@@ -0,0 +1,25 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * DTO for the traffic and throughput of one Git service on one transport.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransportStats {
+    private String transport;
+    private String service;
+    private long requests;
+    private long failures;
+    private long bytesIn;
+    private long bytesOut;
+    private long objectsSent;
+    private long totalMillis;
+    private double bytesPerSecond; // bytes in and out over the time spent serving
+}
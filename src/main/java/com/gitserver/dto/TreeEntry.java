@@ -1,5 +1,6 @@
 package com.gitserver.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -19,6 +20,8 @@ public class TreeEntry {
     private String type; // "file" or "directory"
     private String mode;
     private String sha;
-    private long size;
-    private List<TreeEntry> children;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long size; // omitted when sizes are not requested
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<TreeEntry> children; // only set by recursive listings
 }
@@ -1,6 +1,7 @@
 package com.gitserver.repository;
 
 import com.gitserver.model.Repository;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.List;
@@ -16,4 +17,6 @@ public interface RepositoryJpaRepository extends JpaRepository<Repository, Long>
     List<Repository> findByOwner(String owner);
     
     boolean existsByOwnerAndName(String owner, String name);
+
+    List<Repository> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
 }
@@ -0,0 +1,102 @@
+package com.gitserver.service;
+
+import com.gitserver.cache.AheadBehindCache;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.BitmapIndex;
+import org.eclipse.jgit.lib.BitmapObject;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.BitmapWalker;
+import org.eclipse.jgit.revwalk.ObjectWalk;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Counts how many commits a series of tips are ahead of and behind one base commit.
+ * <p>
+ * If the repository has reachability bitmaps, both counts come from set differences of the
+ * tip's and the base's bitmaps; the base bitmap is built once and shared by every tip.
+ * Otherwise each count is a RevWalk from one side excluding the other, reusing one walk
+ * (and the commit-graph, if present) and stopping at the configured limit.
+ */
+final class AheadBehindCounter implements AutoCloseable {
+
+    private final ObjectReader reader;
+    private final ObjectId base;
+    private final int limit;
+    private final BitmapIndex bitmapIndex;
+    private final RevWalk revWalk;
+    private BitmapIndex.Bitmap baseBitmap;
+
+    AheadBehindCounter(ObjectReader reader, AnyObjectId base, int limit) throws IOException {
+        this.reader = reader;
+        this.base = base.copy();
+        this.limit = limit;
+        this.bitmapIndex = reader.getBitmapIndex();
+        this.revWalk = new RevWalk(reader);
+        this.revWalk.setRetainBody(false);
+    }
+
+    AheadBehindCache.AheadBehind count(AnyObjectId tip) throws IOException {
+        if (base.equals(tip)) {
+            return new AheadBehindCache.AheadBehind(0, 0, false);
+        }
+        if (bitmapIndex != null) {
+            return countWithBitmaps(tip);
+        }
+        int ahead = walk(tip, base);
+        int behind = walk(base, tip);
+        return new AheadBehindCache.AheadBehind(Math.min(ahead, limit), Math.min(behind, limit),
+                ahead > limit || behind > limit);
+    }
+
+    /**
+     * Count commits reachable from {@code from} but not from {@code exclude}, stopping just past the limit.
+     */
+    private int walk(AnyObjectId from, AnyObjectId exclude) throws IOException {
+        revWalk.reset();
+        revWalk.markStart(revWalk.parseCommit(from));
+        revWalk.markUninteresting(revWalk.parseCommit(exclude));
+        int count = 0;
+        while (count <= limit && revWalk.next() != null) {
+            count++;
+        }
+        return count;
+    }
+
+    private AheadBehindCache.AheadBehind countWithBitmaps(AnyObjectId tip) throws IOException {
+        if (baseBitmap == null) {
+            baseBitmap = reachable(base);
+        }
+        BitmapIndex.Bitmap tipBitmap = reachable(tip);
+        int ahead = countCommits(bitmapIndex.newBitmapBuilder().or(tipBitmap).andNot(baseBitmap));
+        int behind = countCommits(bitmapIndex.newBitmapBuilder().or(baseBitmap).andNot(tipBitmap));
+        return new AheadBehindCache.AheadBehind(ahead, behind, false);
+    }
+
+    private BitmapIndex.Bitmap reachable(AnyObjectId id) throws IOException {
+        try (ObjectWalk objectWalk = new ObjectWalk(reader)) {
+            BitmapWalker walker = new BitmapWalker(objectWalk, bitmapIndex, NullProgressMonitor.INSTANCE);
+            return walker.findObjects(List.of(id.copy()), null, true).build();
+        }
+    }
+
+    private static int countCommits(BitmapIndex.Bitmap bitmap) {
+        int count = 0;
+        for (BitmapObject object : bitmap) {
+            if (object.getType() == Constants.OBJ_COMMIT) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void close() {
+        revWalk.close();
+    }
+}
@@ -0,0 +1,315 @@
+package com.gitserver.service;
+
+import com.gitserver.cache.GitRepositoryCache;
+import com.gitserver.cache.RegisteredRepository;
+import com.gitserver.cache.RepositoryRegistry;
+import com.gitserver.config.GitServerConfig;
+import com.gitserver.dto.BitmapCoverage;
+import com.gitserver.dto.BitmapStats;
+import com.gitserver.exception.GitOperationException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.events.ListenerHandle;
+import org.eclipse.jgit.lib.BitmapIndex;
+import org.eclipse.jgit.lib.BitmapObject;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maintains reachability bitmap indexes per repository.
+ * <p>
+ * A bitmap records every object reachable from a commit, so upload-pack can answer
+ * "what does this clone need" with set operations instead of walking and counting every
+ * object, and ahead/behind counts come from the same bitmaps. Bitmaps are written by a
+ * repack with {@code pack.buildBitmaps}; only commits newer than the last repack have to be
+ * walked one by one. Every registered repository is queued at startup, and after that those
+ * whose refs changed; each is repacked on the next refresh once enough commits are no
+ * longer covered. Repacks run one at a time on a thread of their own, since a full repack
+ * of a large repository would otherwise hold the scheduler thread every other scheduled
+ * task shares.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BitmapService {
+
+    private final GitServerConfig config;
+    private final RepositoryService repositoryService;
+    private final GitRepositoryCache repositoryCache;
+    private final RepositoryRegistry repositoryRegistry;
+
+    private final Set<Path> pending = ConcurrentHashMap.newKeySet();
+    private final Set<Path> running = ConcurrentHashMap.newKeySet();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicBoolean repackQueued = new AtomicBoolean();
+    private final ExecutorService repackExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bitmap-repack");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile long lastWriteMillis;
+    private ListenerHandle refsChangedHandle;
+
+    @PostConstruct
+    public void init() {
+        if (config.isBitmapsEnabled()) {
+            refsChangedHandle = Repository.getGlobalListenerList()
+                    .addRefsChangedListener(event -> markStale(event.getRepository()));
+            // The first refresh repacks repositories that have no bitmaps or outdated ones
+            for (RegisteredRepository registered : repositoryRegistry.getRepositories()) {
+                pending.add(registered.path());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (refsChangedHandle != null) {
+            refsChangedHandle.remove();
+        }
+        repackExecutor.shutdownNow();
+    }
+
+    /**
+     * Queue a repository for a bitmap coverage check on the next refresh.
+     */
+    public void markStale(Repository repository) {
+        File gitDir = repository.getDirectory();
+        if (gitDir != null) {
+            pending.add(gitDir.toPath().toAbsolutePath().normalize());
+        }
+    }
+
+    /**
+     * Hand queued repositories to the repack thread, unless it is still working through them.
+     */
+    @Scheduled(fixedDelayString = "${git.server.bitmaps.refresh-interval-ms:300000}")
+    public void refreshPending() {
+        if (pending.isEmpty() || repackExecutor.isShutdown() || !repackQueued.compareAndSet(false, true)) {
+            return;
+        }
+        repackExecutor.execute(() -> {
+            try {
+                repackPending();
+            } finally {
+                repackQueued.set(false);
+            }
+        });
+    }
+
+    /**
+     * Repack queued repositories that have at least the configured number of commits without bitmaps.
+     */
+    private void repackPending() {
+        Iterator<Path> it = pending.iterator();
+        while (it.hasNext()) {
+            Path gitDir = it.next();
+            it.remove();
+            if (!gitDir.toFile().isDirectory()) {
+                continue;
+            }
+            try (Git git = repositoryCache.acquire(gitDir)) {
+                if (needsRefresh(git.getRepository())) {
+                    write(git.getRepository());
+                }
+            } catch (IOException | RuntimeException e) {
+                failures.incrementAndGet();
+                log.warn("Failed to refresh bitmaps for {}: {}", gitDir, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Repack a repository with bitmaps now, regardless of its coverage.
+     *
+     * @throws IllegalArgumentException if bitmap maintenance is disabled
+     */
+    public BitmapCoverage write(String owner, String name) {
+        if (!config.isBitmapsEnabled()) {
+            throw new IllegalArgumentException("Bitmap maintenance is disabled");
+        }
+        try (Git git = repositoryService.getGitRepository(owner, name)) {
+            write(git.getRepository());
+            return coverage(git.getRepository());
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            throw new GitOperationException("Failed to write bitmaps: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get how much of a repository's reachable history its bitmaps cover.
+     */
+    public BitmapCoverage getCoverage(String owner, String name) {
+        try (Git git = repositoryService.getGitRepository(owner, name)) {
+            return coverage(git.getRepository());
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to read bitmaps: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Whether at least the configured number of reachable commits lack bitmap coverage.
+     */
+    public boolean needsRefresh(Repository repository) throws IOException {
+        int threshold = config.getBitmapRefreshCommits();
+        try (ObjectReader reader = repository.newObjectReader();
+             RevWalk revWalk = new RevWalk(reader)) {
+            Frontier frontier = walkUncovered(repository, reader, revWalk, threshold);
+            return frontier.uncovered().size() >= threshold;
+        }
+    }
+
+    /**
+     * The single thread repacks run on, in this package so tests can occupy it.
+     */
+    ExecutorService getRepackExecutor() {
+        return repackExecutor;
+    }
+
+    public BitmapStats getStats() {
+        return BitmapStats.builder()
+                .enabled(config.isBitmapsEnabled())
+                .refreshCommits(config.getBitmapRefreshCommits())
+                .pending(pending.size())
+                .written(written.get())
+                .failures(failures.get())
+                .lastWriteMillis(lastWriteMillis)
+                .build();
+    }
+
+    /**
+     * Repack with a plain {@code git gc}, which builds bitmaps because {@code pack.buildBitmaps}
+     * defaults to true; a repository that turns it off in its own config gets none.
+     */
+    private void write(Repository repository) throws IOException {
+        if (repository.getDirectory() == null) {
+            return;
+        }
+        Path gitDir = repository.getDirectory().toPath().toAbsolutePath().normalize();
+        if (!running.add(gitDir)) {
+            // A repack of this repository is already under way
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            try (Git git = Git.wrap(repository)) {
+                git.gc().call();
+            }
+
+            written.incrementAndGet();
+            lastWriteMillis = System.currentTimeMillis() - start;
+            log.debug("Repacked {} with bitmaps in {} ms", repository.getDirectory(), lastWriteMillis);
+        } catch (GitAPIException e) {
+            throw new IOException(e.getMessage(), e);
+        } finally {
+            running.remove(gitDir);
+        }
+    }
+
+    private BitmapCoverage coverage(Repository repository) throws IOException {
+        try (ObjectReader reader = repository.newObjectReader();
+             RevWalk revWalk = new RevWalk(reader)) {
+            Frontier frontier = walkUncovered(repository, reader, revWalk, Integer.MAX_VALUE);
+            long covered = 0;
+            long uncovered = frontier.uncovered().size();
+            if (frontier.covered() != null) {
+                for (BitmapObject object : frontier.covered()) {
+                    if (object.getType() == Constants.OBJ_COMMIT) {
+                        covered++;
+                    }
+                }
+                // A merge can reach commits through a path that bypasses their bitmapped descendants
+                for (RevCommit commit : frontier.uncovered()) {
+                    if (frontier.covered().contains(commit)) {
+                        uncovered--;
+                    }
+                }
+            }
+            long total = covered + uncovered;
+            return BitmapCoverage.builder()
+                    .bitmapIndex(reader.getBitmapIndex() != null)
+                    .tips(frontier.tips())
+                    .tipsWithBitmap(frontier.tipsWithBitmap())
+                    .coveredCommits(covered)
+                    .uncoveredCommits(uncovered)
+                    .coverage(total == 0 ? 1.0 : (double) covered / total)
+                    .build();
+        }
+    }
+
+    /**
+     * Walk back from every ref tip until reaching commits that have a bitmap, collecting the
+     * commits passed on the way (up to the limit) and the union of the bitmaps reached.
+     */
+    private static Frontier walkUncovered(Repository repository, ObjectReader reader, RevWalk revWalk, int limit)
+            throws IOException {
+        BitmapIndex bitmapIndex = reader.getBitmapIndex();
+        BitmapIndex.BitmapBuilder covered = bitmapIndex != null ? bitmapIndex.newBitmapBuilder() : null;
+        RevFlag seen = revWalk.newFlag("seen");
+        Deque<RevCommit> queue = new ArrayDeque<>();
+        int tips = 0;
+        int tipsWithBitmap = 0;
+        for (ObjectId tip : CommitGraphService.commitTips(repository, revWalk)) {
+            tips++;
+            if (bitmapIndex != null && bitmapIndex.getBitmap(tip) != null) {
+                tipsWithBitmap++;
+            }
+            RevCommit commit = revWalk.parseCommit(tip);
+            if (!commit.has(seen)) {
+                commit.add(seen);
+                queue.add(commit);
+            }
+        }
+
+        List<RevCommit> uncovered = new ArrayList<>();
+        while (!queue.isEmpty() && uncovered.size() < limit) {
+            RevCommit commit = queue.poll();
+            BitmapIndex.Bitmap bitmap = bitmapIndex != null ? bitmapIndex.getBitmap(commit) : null;
+            if (bitmap != null) {
+                covered.or(bitmap);
+                continue;
+            }
+            uncovered.add(commit);
+            revWalk.parseHeaders(commit);
+            for (RevCommit parent : commit.getParents()) {
+                if (!parent.has(seen)) {
+                    parent.add(seen);
+                    queue.add(parent);
+                }
+            }
+        }
+        return new Frontier(tips, tipsWithBitmap, uncovered, covered);
+    }
+
+    private record Frontier(int tips, int tipsWithBitmap, List<RevCommit> uncovered,
+                            BitmapIndex.BitmapBuilder covered) {
+    }
+}
@@ -0,0 +1,335 @@
+package com.gitserver.service;
+
+import com.gitserver.cache.BlameCache;
+import com.gitserver.cache.CommitCache;
+import com.gitserver.dto.BlameHunk;
+import com.gitserver.dto.FileBlame;
+import com.gitserver.exception.GitOperationException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.blame.BlameGenerator;
+import org.eclipse.jgit.blame.BlameResult;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Service for blaming files, i.e. finding the commit that last changed each line.
+ * <p>
+ * Complete blames are cached per (commit, path). When a commit's parent already has a
+ * cached blame, the commit's blame is derived from it with a single diff instead of
+ * walking history again: unchanged lines keep the parent's attribution and changed lines
+ * belong to the commit itself. This is the same step JGit's {@link BlameGenerator} takes,
+ * so derived and freshly computed blames are identical.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BlameService {
+
+    // The algorithm and comparator BlameGenerator uses by default, set explicitly to keep derived blames in step
+    private static final DiffAlgorithm DIFF_ALGORITHM =
+            DiffAlgorithm.getAlgorithm(DiffAlgorithm.SupportedAlgorithm.HISTOGRAM);
+    private static final RawTextComparator TEXT_COMPARATOR = RawTextComparator.DEFAULT;
+
+    private final RepositoryService repositoryService;
+    private final FileService fileService;
+    private final BlameCache blameCache;
+    private final CommitCache commitCache;
+
+    /**
+     * Blame a file at a ref, optionally only lines {@code startLine} to {@code endLine} (1-based, inclusive).
+     * <p>
+     * A line range that is not already cached, and cannot be derived from the parent's cached
+     * blame, is computed on its own: the history walk stops as soon as those lines are attributed.
+     */
+    public FileBlame getBlame(String owner, String repoName, String ref, String path,
+                              Integer startLine, Integer endLine) {
+        path = normalizePath(path);
+        if (startLine != null && startLine < 1) {
+            throw new IllegalArgumentException("Start line must be at least 1");
+        }
+        if (endLine != null && endLine < (startLine != null ? startLine : 1)) {
+            throw new IllegalArgumentException("End line must not be before the start line");
+        }
+        boolean ranged = startLine != null || endLine != null;
+        String repoKey = owner + "/" + repoName;
+        ObjectId refId = fileService.resolveRefId(owner, repoName, ref);
+
+        try (Git git = repositoryService.getGitRepository(owner, repoName)) {
+            Repository repository = git.getRepository();
+
+            try (ObjectReader reader = repository.newObjectReader();
+                 RevWalk revWalk = new RevWalk(reader)) {
+                RevCommit commit = revWalk.parseCommit(refId);
+                ObjectId blobId = findFile(reader, commit, path);
+                if (blobId == null) {
+                    throw new GitOperationException("File not found: " + path);
+                }
+
+                BlameCache.CachedBlame blame = blameCache.get(repoKey, commit, path);
+                if (blame == null) {
+                    blame = deriveFromParent(repoKey, reader, revWalk, commit, path, blobId);
+                    if (blame == null && ranged) {
+                        return computeRange(repoKey, repository, revWalk, commit, path, startLine, endLine);
+                    }
+                    if (blame == null) {
+                        blame = compute(repository, commit, path);
+                    }
+                    blameCache.put(repoKey, commit, path, blame);
+                }
+
+                int from = startLine != null ? startLine - 1 : 0;
+                int to = endLine != null ? Math.min(endLine, blame.lineCount()) : blame.lineCount();
+                checkRange(from, blame.lineCount(), ranged);
+                return toFileBlame(repoKey, revWalk, commit, path, blame, from, to);
+            }
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to blame file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Derive a commit's blame from a cached parent blame, or return {@code null} if there is none to build on.
+     */
+    private BlameCache.CachedBlame deriveFromParent(String repoKey, ObjectReader reader, RevWalk revWalk,
+                                                    RevCommit commit, String path, ObjectId blobId)
+            throws IOException {
+        ObjectId parentBlobId = null;
+        for (RevCommit parent : commit.getParents()) {
+            revWalk.parseHeaders(parent);
+            ObjectId id = findFile(reader, parent, path);
+            // A parent with the same content takes over the whole blame, as in BlameGenerator
+            if (blobId.equals(id)) {
+                return blameCache.get(repoKey, parent, path);
+            }
+            if (parentBlobId == null) {
+                parentBlobId = id;
+            }
+        }
+        // Merges that changed the file and files added or renamed here need the full walk
+        if (commit.getParentCount() != 1 || parentBlobId == null) {
+            return null;
+        }
+        BlameCache.CachedBlame parentBlame = blameCache.get(repoKey, commit.getParent(0), path);
+        if (parentBlame == null) {
+            return null;
+        }
+
+        RawText before = new RawText(reader.open(parentBlobId, Constants.OBJ_BLOB).getCachedBytes(Integer.MAX_VALUE));
+        RawText after = new RawText(reader.open(blobId, Constants.OBJ_BLOB).getCachedBytes(Integer.MAX_VALUE));
+        EditList edits = DIFF_ALGORITHM.diff(TEXT_COMPARATOR, before, after);
+
+        List<BlameCache.Region> regions = new ArrayList<>();
+        ObjectId commitId = commit.copy();
+        int a = 0;
+        int b = 0;
+        for (Edit edit : edits) {
+            copyRegions(parentBlame, a, edit.getBeginA(), b, regions);
+            if (edit.getLengthB() > 0) {
+                regions.add(new BlameCache.Region(edit.getBeginB(), edit.getLengthB(), commitId, path,
+                        edit.getBeginB()));
+            }
+            a = edit.getEndA();
+            b = edit.getEndB();
+        }
+        copyRegions(parentBlame, a, before.size(), b, regions);
+        return new BlameCache.CachedBlame(after.size(), merge(regions));
+    }
+
+    /**
+     * Copy the attribution of parent lines {@code [fromA, toA)} to the lines starting at {@code toB}.
+     */
+    private static void copyRegions(BlameCache.CachedBlame parent, int fromA, int toA, int toB,
+                                    List<BlameCache.Region> out) {
+        if (fromA >= toA) {
+            return;
+        }
+        List<BlameCache.Region> regions = parent.regions();
+        for (int i = firstRegion(regions, fromA); i < regions.size(); i++) {
+            BlameCache.Region region = regions.get(i);
+            if (region.start() >= toA) {
+                break;
+            }
+            int start = Math.max(region.start(), fromA);
+            int end = Math.min(region.end(), toA);
+            out.add(new BlameCache.Region(toB + start - fromA, end - start, region.commitId(),
+                    region.sourcePath(), region.sourceStart() + start - region.start()));
+        }
+    }
+
+    private static int firstRegion(List<BlameCache.Region> regions, int line) {
+        int low = 0;
+        int high = regions.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            BlameCache.Region region = regions.get(mid);
+            if (region.end() <= line) {
+                low = mid + 1;
+            } else if (region.start() > line) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return low;
+    }
+
+    private static BlameCache.CachedBlame compute(Repository repository, RevCommit commit, String path)
+            throws IOException {
+        try (BlameGenerator generator = newGenerator(repository, path)) {
+            generator.push(null, commit);
+            int lineCount = generator.getResultContents().size();
+
+            List<BlameCache.Region> regions = new ArrayList<>();
+            while (generator.next()) {
+                RevCommit source = generator.getSourceCommit();
+                regions.add(new BlameCache.Region(generator.getResultStart(), generator.getRegionLength(),
+                        source != null ? source.copy() : null, sourcePath(generator.getSourcePath(), path),
+                        generator.getSourceStart()));
+            }
+            return new BlameCache.CachedBlame(lineCount, merge(regions));
+        }
+    }
+
+    private FileBlame computeRange(String repoKey, Repository repository, RevWalk revWalk, RevCommit commit,
+                                   String path, Integer startLine, Integer endLine) throws IOException {
+        try (BlameGenerator generator = newGenerator(repository, path)) {
+            generator.push(null, commit);
+            BlameResult result = BlameResult.create(generator);
+            if (result == null) {
+                throw new GitOperationException("File not found: " + path);
+            }
+            int lineCount = result.getResultContents().size();
+            int from = startLine != null ? startLine - 1 : 0;
+            int to = endLine != null ? Math.min(endLine, lineCount) : lineCount;
+            checkRange(from, lineCount, true);
+            result.computeRange(from, to);
+
+            List<BlameCache.Region> regions = new ArrayList<>(to - from);
+            for (int line = from; line < to; line++) {
+                RevCommit source = result.getSourceCommit(line);
+                regions.add(new BlameCache.Region(line, 1, source != null ? source.copy() : null,
+                        sourcePath(result.getSourcePath(line), path), result.getSourceLine(line)));
+            }
+            BlameCache.CachedBlame blame = new BlameCache.CachedBlame(lineCount, merge(regions));
+            return toFileBlame(repoKey, revWalk, commit, path, blame, from, to);
+        }
+    }
+
+    private static BlameGenerator newGenerator(Repository repository, String path) {
+        return new BlameGenerator(repository, path)
+                .setDiffAlgorithm(DIFF_ALGORITHM)
+                .setTextComparator(TEXT_COMPARATOR);
+    }
+
+    /**
+     * Sort regions by line and join neighbours that continue the same commit's lines.
+     */
+    private static List<BlameCache.Region> merge(List<BlameCache.Region> regions) {
+        regions.sort(Comparator.comparingInt(BlameCache.Region::start));
+        List<BlameCache.Region> merged = new ArrayList<>(regions.size());
+        BlameCache.Region previous = null;
+        for (BlameCache.Region region : regions) {
+            if (previous != null && previous.end() == region.start()
+                    && Objects.equals(previous.commitId(), region.commitId())
+                    && Objects.equals(previous.sourcePath(), region.sourcePath())
+                    && previous.sourceStart() + previous.length() == region.sourceStart()) {
+                previous = new BlameCache.Region(previous.start(), previous.length() + region.length(),
+                        previous.commitId(), previous.sourcePath(), previous.sourceStart());
+                merged.set(merged.size() - 1, previous);
+            } else {
+                merged.add(region);
+                previous = region;
+            }
+        }
+        return List.copyOf(merged);
+    }
+
+    private FileBlame toFileBlame(String repoKey, RevWalk revWalk, RevCommit commit, String path,
+                                  BlameCache.CachedBlame blame, int from, int to) throws IOException {
+        List<BlameHunk> hunks = new ArrayList<>();
+        List<BlameCache.Region> regions = blame.regions();
+        for (int i = firstRegion(regions, from); i < regions.size(); i++) {
+            BlameCache.Region region = regions.get(i);
+            if (region.start() >= to) {
+                break;
+            }
+            int start = Math.max(region.start(), from);
+            int end = Math.min(region.end(), to);
+
+            BlameHunk.BlameHunkBuilder hunk = BlameHunk.builder()
+                    .startLine(start + 1)
+                    .lineCount(end - start)
+                    .sourcePath(region.sourcePath())
+                    .sourceStartLine(region.sourceStart() + start - region.start() + 1);
+            if (region.commitId() != null) {
+                CommitCache.CachedCommit source = commitCache.load(repoKey, revWalk, region.commitId());
+                hunk.commitId(source.getName())
+                        .commitMessage(source.shortMessage())
+                        .authorTime(source.authorTime());
+                if (source.author() != null) {
+                    hunk.author(source.author().name())
+                            .authorEmail(source.author().email());
+                }
+            }
+            hunks.add(hunk.build());
+        }
+
+        return FileBlame.builder()
+                .path(path)
+                .commitId(commit.getName())
+                .lineCount(blame.lineCount())
+                .hunks(hunks)
+                .build();
+    }
+
+    private static void checkRange(int from, int lineCount, boolean ranged) {
+        if (ranged && from >= lineCount && from > 0) {
+            throw new IllegalArgumentException("Start line is beyond the end of the file (" + lineCount + " lines)");
+        }
+    }
+
+    /**
+     * Find a regular or executable file in a commit, as BlameGenerator does.
+     */
+    private static ObjectId findFile(ObjectReader reader, RevCommit commit, String path) throws IOException {
+        try (TreeWalk treeWalk = TreeWalk.forPath(reader, path, commit.getTree())) {
+            if (treeWalk == null || (treeWalk.getRawMode(0) & FileMode.TYPE_MASK) != FileMode.TYPE_FILE) {
+                return null;
+            }
+            return treeWalk.getObjectId(0);
+        }
+    }
+
+    private static String sourcePath(String sourcePath, String path) {
+        // Share the request's path instance unless the lines came from before a rename
+        return path.equals(sourcePath) ? path : sourcePath;
+    }
+
+    private static String normalizePath(String path) {
+        String normalized = path == null ? "" : path.replaceAll("^/+|/+$", "");
+        if (normalized.isEmpty()) {
+            throw new IllegalArgumentException("A file path is required");
+        }
+        return normalized;
+    }
+}
@@ -1,23 +1,33 @@
 package com.gitserver.service;
 
+import com.gitserver.cache.AheadBehindCache;
+import com.gitserver.cache.CommitCache;
+import com.gitserver.cache.RefResolutionCache;
+import com.gitserver.config.GitServerConfig;
 import com.gitserver.dto.BranchInfo;
+import com.gitserver.dto.BranchPage;
 import com.gitserver.dto.CreateBranchRequest;
 import com.gitserver.exception.BranchNotFoundException;
 import com.gitserver.exception.GitOperationException;
+import com.gitserver.util.ETagUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.ListBranchCommand;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -28,34 +38,129 @@ import java.util.List;
 @Slf4j
 public class BranchService {
 
+    private final GitServerConfig config;
     private final RepositoryService repositoryService;
+    private final RefResolutionCache refCache;
+    private final CommitCache commitCache;
+    private final AheadBehindCache aheadBehindCache;
 
     /**
      * List all branches in a repository.
      */
     public List<BranchInfo> listBranches(String owner, String repoName) {
-        try (Git git = repositoryService.getGitRepository(owner, repoName)) {
+        return getBranchPage(owner, repoName, null, "name", Integer.MAX_VALUE, null, true, false).getBranches();
+    }
+
+    /**
+     * Get one page of branches, continuing after the cursor returned with the previous page.
+     * <p>
+     * Only refs under the prefix are read from the ref database. Sorting by name needs nothing
+     * but the refs; sorting by {@code updated} (newest first) parses each tip's commit header,
+     * reusing one RevWalk. Commit details and ahead/behind counts are only loaded for the page's
+     * own branches, and only if requested. The cursor is the sort key of the last branch
+     * returned, so pages stay consistent while branches are created and deleted.
+     */
+    public BranchPage getBranchPage(String owner, String repoName, String prefix, String sort, int limit,
+                                    String cursor, boolean details, boolean aheadBehind) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        BranchSort order = BranchSort.parse(sort);
+        String repoKey = owner + "/" + repoName;
+
+        try (Git git = repositoryService.getGitRepository(owner, repoName);
+             ObjectReader reader = git.getRepository().newObjectReader();
+             RevWalk revWalk = new RevWalk(reader)) {
             Repository repository = git.getRepository();
             String defaultBranch = getDefaultBranch(repository);
+            revWalk.setRetainBody(false);
 
-            List<BranchInfo> branches = new ArrayList<>();
-            List<Ref> refs = git.branchList()
-                    .setListMode(ListBranchCommand.ListMode.ALL)
-                    .call();
+            String filter = prefix != null ? prefix : "";
+            List<Ref> refs = repository.getRefDatabase()
+                    .getRefsByPrefix(Constants.R_HEADS + filter, Constants.R_REMOTES + filter);
 
+            List<BranchEntry> entries = new ArrayList<>(refs.size());
             for (Ref ref : refs) {
-                BranchInfo branchInfo = createBranchInfo(repository, ref, defaultBranch);
+                ObjectId objectId = ref.getObjectId();
+                if (objectId == null) {
+                    continue;
+                }
+                long commitTime = 0;
+                if (order == BranchSort.UPDATED) {
+                    try {
+                        commitTime = commitTime(repoKey, revWalk, objectId);
+                    } catch (IOException e) {
+                        log.warn("Failed to parse commit for branch {}: {}", ref.getName(), e.getMessage());
+                        continue;
+                    }
+                }
+                entries.add(new BranchEntry(ref.getName(), shortName(ref.getName()), commitTime, ref));
+            }
+            entries.sort(order.comparator);
+
+            int from = 0;
+            if (cursor != null) {
+                int index = Collections.binarySearch(entries, decodeCursor(cursor), order.comparator);
+                from = index >= 0 ? index + 1 : -index - 1;
+            }
+            int to = (int) Math.min((long) from + limit, entries.size());
+
+            List<BranchInfo> branches = new ArrayList<>(Math.max(to - from, 0));
+            for (BranchEntry entry : entries.subList(from, to)) {
+                BranchInfo branchInfo = details
+                        ? createBranchInfo(repoKey, revWalk, entry.ref(), defaultBranch)
+                        : BranchInfo.builder()
+                                .name(entry.name())
+                                .commitId(entry.ref().getObjectId().getName())
+                                .commitTime(order == BranchSort.UPDATED ? entry.commitTime() : null)
+                                .isDefault(entry.name().equals(defaultBranch))
+                                .build();
                 if (branchInfo != null) {
                     branches.add(branchInfo);
                 }
             }
 
-            return branches;
-        } catch (GitAPIException e) {
+            if (aheadBehind) {
+                addAheadBehind(repoKey, repository, reader, branches, defaultBranch);
+            }
+            return BranchPage.builder()
+                    .branches(branches)
+                    .nextCursor(to < entries.size() ? encodeCursor(entries.get(to - 1)) : null)
+                    .build();
+        } catch (IOException e) {
             throw new GitOperationException("Failed to list branches: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Get an entity tag for the branch listing, computed from the refs alone.
+     */
+    public String getBranchesETag(String owner, String repoName) {
+        try (Git git = repositoryService.getGitRepository(owner, repoName)) {
+            Repository repository = git.getRepository();
+            List<Ref> refs = repository.getRefDatabase().getRefsByPrefix(Constants.R_HEADS, Constants.R_REMOTES);
+            return ETagUtil.fromRefs(getDefaultBranch(repository), refs);
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to list branches: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get an entity tag for a single branch, computed from its ref alone.
+     */
+    public String getBranchETag(String owner, String repoName, String branchName) {
+        try (Git git = repositoryService.getGitRepository(owner, repoName)) {
+            Repository repository = git.getRepository();
+            Ref ref = repository.findRef("refs/heads/" + branchName);
+            if (ref == null) {
+                throw new BranchNotFoundException("Branch not found: " + branchName);
+            }
+            return ETagUtil.fromRefs(getDefaultBranch(repository), List.of(ref));
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to get branch: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Get information about a specific branch.
      */
@@ -69,7 +174,10 @@ public class BranchService {
                 throw new BranchNotFoundException("Branch not found: " + branchName);
             }
 
-            BranchInfo branchInfo = createBranchInfo(repository, ref, defaultBranch);
+            BranchInfo branchInfo;
+            try (RevWalk revWalk = new RevWalk(repository)) {
+                branchInfo = createBranchInfo(owner + "/" + repoName, revWalk, ref, defaultBranch);
+            }
             if (branchInfo == null) {
                 throw new BranchNotFoundException("Branch not found: " + branchName);
             }
@@ -103,11 +211,14 @@ public class BranchService {
                     .setName(request.getBranchName())
                     .setStartPoint(sourceRef.getName())
                     .call();
+            refCache.invalidate(repository);
 
             log.info("Created branch '{}' from '{}' in {}/{}", 
                     request.getBranchName(), sourceBranch, owner, repoName);
 
-            return createBranchInfo(repository, newBranch, getDefaultBranch(repository));
+            try (RevWalk revWalk = new RevWalk(repository)) {
+                return createBranchInfo(owner + "/" + repoName, revWalk, newBranch, getDefaultBranch(repository));
+            }
         } catch (GitAPIException | IOException e) {
             throw new GitOperationException("Failed to create branch: " + e.getMessage(), e);
         }
@@ -134,6 +245,7 @@ public class BranchService {
                     .setBranchNames(branchName)
                     .setForce(true)
                     .call();
+            refCache.invalidate(repository);
 
             log.info("Deleted branch '{}' from {}/{}", branchName, owner, repoName);
         } catch (GitAPIException | IOException e) {
@@ -141,29 +253,25 @@ public class BranchService {
         }
     }
 
-    private BranchInfo createBranchInfo(Repository repository, Ref ref, String defaultBranch) {
-        String branchName = ref.getName();
-        if (branchName.startsWith("refs/heads/")) {
-            branchName = branchName.substring("refs/heads/".length());
-        } else if (branchName.startsWith("refs/remotes/")) {
-            branchName = branchName.substring("refs/remotes/".length());
-        }
+    private BranchInfo createBranchInfo(String repoKey, RevWalk revWalk, Ref ref, String defaultBranch) {
+        String branchName = shortName(ref.getName());
 
-        try (RevWalk revWalk = new RevWalk(repository)) {
-            ObjectId objectId = ref.getObjectId();
-            if (objectId == null) {
-                return null;
-            }
+        ObjectId objectId = ref.getObjectId();
+        if (objectId == null) {
+            return null;
+        }
 
-            RevCommit commit = revWalk.parseCommit(objectId);
+        try {
+            CommitCache.CachedCommit commit = commitCache.load(repoKey, revWalk, objectId);
+            CommitCache.Identity author = commit.author();
 
             return BranchInfo.builder()
                     .name(branchName)
                     .commitId(commit.getName())
-                    .commitMessage(commit.getShortMessage())
-                    .author(commit.getAuthorIdent().getName())
-                    .authorEmail(commit.getAuthorIdent().getEmailAddress())
-                    .commitTime(commit.getCommitTime() * 1000L)
+                    .commitMessage(commit.shortMessage())
+                    .author(author != null ? author.name() : null)
+                    .authorEmail(author != null ? author.email() : null)
+                    .commitTime(commit.committerTime())
                     .isDefault(branchName.equals(defaultBranch))
                     .build();
         } catch (IOException e) {
@@ -172,6 +280,31 @@ public class BranchService {
         }
     }
 
+    private void addAheadBehind(String repoKey, Repository repository, ObjectReader reader,
+                                List<BranchInfo> branches, String defaultBranch) throws IOException {
+        Ref defaultRef = repository.exactRef(Constants.R_HEADS + defaultBranch);
+        if (defaultRef == null || defaultRef.getObjectId() == null) {
+            return;
+        }
+        ObjectId base = defaultRef.getObjectId();
+
+        try (AheadBehindCounter counter = new AheadBehindCounter(reader, base, config.getAheadBehindMaxCommits())) {
+            for (BranchInfo branch : branches) {
+                ObjectId tip = ObjectId.fromString(branch.getCommitId());
+                AheadBehindCache.AheadBehind counts = aheadBehindCache.get(repoKey, tip, base);
+                if (counts == null) {
+                    counts = counter.count(tip);
+                    aheadBehindCache.put(repoKey, tip, base, counts);
+                }
+                branch.setAheadBy(counts.ahead());
+                branch.setBehindBy(counts.behind());
+                if (counts.truncated()) {
+                    branch.setAheadBehindTruncated(true);
+                }
+            }
+        }
+    }
+
     private String getDefaultBranch(Repository repository) {
         try {
             String fullBranch = repository.getFullBranch();
@@ -183,4 +316,72 @@ public class BranchService {
             return "main";
         }
     }
+
+    private long commitTime(String repoKey, RevWalk revWalk, ObjectId commitId) throws IOException {
+        CommitCache.CachedCommit cached = commitCache.get(repoKey, commitId);
+        return cached != null ? cached.committerTime() : revWalk.parseCommit(commitId).getCommitTime() * 1000L;
+    }
+
+    private static String shortName(String refName) {
+        if (refName.startsWith(Constants.R_HEADS)) {
+            return refName.substring(Constants.R_HEADS.length());
+        } else if (refName.startsWith(Constants.R_REMOTES)) {
+            return refName.substring(Constants.R_REMOTES.length());
+        }
+        return refName;
+    }
+
+    private static String encodeCursor(BranchEntry last) {
+        String key = last.commitTime() + ":" + last.refName();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static BranchEntry decodeCursor(String cursor) {
+        String key;
+        try {
+            key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+        int separator = key.indexOf(':');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        try {
+            String refName = key.substring(separator + 1);
+            return new BranchEntry(refName, shortName(refName), Long.parseLong(key.substring(0, separator)), null);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    /**
+     * A branch ref with the keys it is sorted by; cursors decode to an entry without a ref.
+     */
+    private record BranchEntry(String refName, String name, long commitTime, Ref ref) {
+    }
+
+    private enum BranchSort {
+        NAME(Comparator.comparing(BranchEntry::name)
+                .thenComparing(BranchEntry::refName)),
+        UPDATED(Comparator.comparingLong(BranchEntry::commitTime).reversed()
+                .thenComparing(BranchEntry::name)
+                .thenComparing(BranchEntry::refName));
+
+        private final Comparator<BranchEntry> comparator;
+
+        BranchSort(Comparator<BranchEntry> comparator) {
+            this.comparator = comparator;
+        }
+
+        static BranchSort parse(String sort) {
+            if (sort == null || sort.equals("name")) {
+                return NAME;
+            }
+            if (sort.equals("updated")) {
+                return UPDATED;
+            }
+            throw new IllegalArgumentException("Unknown sort: " + sort + " (expected name or updated)");
+        }
+    }
 }
@@ -0,0 +1,59 @@
+package com.gitserver.service;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Matches changes to a single path, the same as {@code AND(PathFilter, ANY_DIFF)}, while also
+ * reporting that path to JGit's {@code TreeRevFilter}.
+ * <p>
+ * With the path known, history walks test each commit against the changed-path Bloom filter
+ * stored in the commit-graph and skip the tree diff for commits that definitely did not touch
+ * it. Commits missing from the graph, or whose filter may contain the path, are diffed as usual.
+ */
+final class ChangedPathTreeFilter extends TreeFilter {
+
+    private final String path;
+    private final TreeFilter delegate;
+
+    ChangedPathTreeFilter(String path) {
+        this(path, AndTreeFilter.create(PathFilter.create(path), TreeFilter.ANY_DIFF));
+    }
+
+    private ChangedPathTreeFilter(String path, TreeFilter delegate) {
+        this.path = path;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean include(TreeWalk walker) throws IOException {
+        return delegate.include(walker);
+    }
+
+    @Override
+    public boolean shouldBeRecursive() {
+        return delegate.shouldBeRecursive();
+    }
+
+    @Override
+    public Optional<Set<byte[]>> getPathsBestEffort() {
+        return Optional.of(Set.of(Constants.encode(path)));
+    }
+
+    @Override
+    public TreeFilter clone() {
+        return new ChangedPathTreeFilter(path, delegate.clone());
+    }
+
+    @Override
+    public String toString() {
+        return "CHANGED_PATH(" + path + ")";
+    }
+}
@@ -0,0 +1,237 @@
+package com.gitserver.service;
+
+import com.gitserver.cache.GitRepositoryCache;
+import com.gitserver.cache.RegisteredRepository;
+import com.gitserver.cache.RepositoryRegistry;
+import com.gitserver.config.GitServerConfig;
+import com.gitserver.dto.CommitGraphStats;
+import com.gitserver.exception.GitOperationException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.events.ListenerHandle;
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraph;
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraphWriter;
+import org.eclipse.jgit.internal.storage.commitgraph.GraphCommits;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.internal.storage.file.LockFile;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.util.FileUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maintains a commit-graph file per repository.
+ * <p>
+ * Once a repository has a graph and {@code core.commitGraph} enabled, every {@code RevWalk}
+ * reads parents, commit times and generation numbers from it instead of inflating commit
+ * objects from pack data. Commits newer than the graph are simply parsed from the object
+ * database, so a stale graph only costs speed. Every registered repository is queued at
+ * startup, so existing repositories get a graph too; after that, repositories whose refs
+ * changed are queued and their graphs rewritten on the next refresh.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CommitGraphService {
+
+    private final GitServerConfig config;
+    private final RepositoryService repositoryService;
+    private final GitRepositoryCache repositoryCache;
+    private final RepositoryRegistry repositoryRegistry;
+
+    private final Set<Path> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile long lastWriteMillis;
+    private ListenerHandle refsChangedHandle;
+
+    @PostConstruct
+    public void init() {
+        if (config.isCommitGraphEnabled()) {
+            refsChangedHandle = Repository.getGlobalListenerList()
+                    .addRefsChangedListener(event -> markStale(event.getRepository()));
+            // The first refresh writes graphs for repositories that have none or an outdated one
+            for (RegisteredRepository registered : repositoryRegistry.getRepositories()) {
+                pending.add(registered.path());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (refsChangedHandle != null) {
+            refsChangedHandle.remove();
+        }
+    }
+
+    /**
+     * Queue a repository for a commit-graph check on the next refresh.
+     */
+    public void markStale(Repository repository) {
+        File gitDir = repository.getDirectory();
+        if (gitDir != null) {
+            pending.add(gitDir.toPath().toAbsolutePath().normalize());
+        }
+    }
+
+    /**
+     * Rewrite the graphs of queued repositories that no longer cover all of their ref tips.
+     */
+    @Scheduled(fixedDelayString = "${git.server.commit-graph.refresh-interval-ms:60000}")
+    public void refreshPending() {
+        Iterator<Path> it = pending.iterator();
+        while (it.hasNext()) {
+            Path gitDir = it.next();
+            it.remove();
+            if (!gitDir.toFile().isDirectory()) {
+                continue;
+            }
+            try (Git git = repositoryCache.acquire(gitDir)) {
+                if (isStale(git.getRepository())) {
+                    write(git.getRepository());
+                }
+            } catch (IOException | RuntimeException e) {
+                failures.incrementAndGet();
+                log.warn("Failed to refresh commit-graph for {}: {}", gitDir, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Write the commit-graph of a repository now, regardless of whether it is stale.
+     *
+     * @throws IllegalArgumentException if commit-graph maintenance is disabled
+     */
+    public CommitGraphStats write(String owner, String name) {
+        if (!config.isCommitGraphEnabled()) {
+            throw new IllegalArgumentException("Commit-graph maintenance is disabled");
+        }
+        try (Git git = repositoryService.getGitRepository(owner, name)) {
+            write(git.getRepository());
+            return getStats();
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            throw new GitOperationException("Failed to write commit-graph: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Whether the repository's graph is missing or lacks any commit a ref points at.
+     */
+    public boolean isStale(Repository repository) throws IOException {
+        try (ObjectReader reader = repository.newObjectReader();
+             RevWalk revWalk = new RevWalk(reader)) {
+            Optional<CommitGraph> graph = reader.getCommitGraph();
+            for (ObjectId tip : commitTips(repository, revWalk)) {
+                if (graph.isEmpty() || graph.get().findGraphPosition(tip) < 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public CommitGraphStats getStats() {
+        return CommitGraphStats.builder()
+                .enabled(config.isCommitGraphEnabled())
+                .changedPaths(config.isCommitGraphChangedPaths())
+                .pending(pending.size())
+                .written(written.get())
+                .failures(failures.get())
+                .lastWriteMillis(lastWriteMillis)
+                .build();
+    }
+
+    private void write(Repository repository) throws IOException {
+        if (!(repository instanceof FileRepository fileRepository)) {
+            return;
+        }
+        // Grafted or shallow histories cannot be described by a commit-graph
+        if (!fileRepository.getObjectDatabase().getShallowCommits().isEmpty()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        File infoDir = new File(fileRepository.getObjectsDirectory(), "info");
+        FileUtils.mkdirs(infoDir, true);
+        LockFile lock = new LockFile(new File(infoDir, "commit-graph"));
+        if (!lock.lock()) {
+            // Another writer holds the lock; its graph will be just as current
+            return;
+        }
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            Set<ObjectId> tips = commitTips(repository, revWalk);
+            GraphCommits commits = GraphCommits.fromWalk(NullProgressMonitor.INSTANCE, tips, revWalk);
+            try (OutputStream out = lock.getOutputStream()) {
+                new CommitGraphWriter(commits, config.isCommitGraphChangedPaths())
+                        .write(NullProgressMonitor.INSTANCE, out);
+            }
+            if (!lock.commit()) {
+                throw new IOException("Could not commit " + lock);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        enableReading(repository);
+        written.incrementAndGet();
+        lastWriteMillis = System.currentTimeMillis() - start;
+        log.debug("Wrote commit-graph for {} in {} ms", repository.getDirectory(), lastWriteMillis);
+    }
+
+    private void enableReading(Repository repository) throws IOException {
+        StoredConfig repoConfig = repository.getConfig();
+        boolean changedPaths = config.isCommitGraphChangedPaths();
+        if (repoConfig.getBoolean(ConfigConstants.CONFIG_CORE_SECTION, ConfigConstants.CONFIG_COMMIT_GRAPH, false)
+                && repoConfig.getBoolean(ConfigConstants.CONFIG_GC_SECTION,
+                        ConfigConstants.CONFIG_KEY_WRITE_CHANGED_PATHS, false) == changedPaths) {
+            return;
+        }
+        repoConfig.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_COMMIT_GRAPH, true);
+        // Keep graphs written by a JGit gc equivalent to ours
+        repoConfig.setBoolean(ConfigConstants.CONFIG_GC_SECTION, null, ConfigConstants.CONFIG_KEY_WRITE_COMMIT_GRAPH, true);
+        repoConfig.setBoolean(ConfigConstants.CONFIG_GC_SECTION, null,
+                ConfigConstants.CONFIG_KEY_WRITE_CHANGED_PATHS, changedPaths);
+        repoConfig.save();
+    }
+
+    /**
+     * The commits all refs point at, with annotated tags peeled.
+     */
+    static Set<ObjectId> commitTips(Repository repository, RevWalk revWalk) throws IOException {
+        Set<ObjectId> tips = new HashSet<>();
+        for (Ref ref : repository.getRefDatabase().getRefs()) {
+            ObjectId id = ref.getPeeledObjectId() != null ? ref.getPeeledObjectId() : ref.getObjectId();
+            if (id == null) {
+                continue;
+            }
+            // Annotated tags that were not peeled by the ref database still need peeling here
+            if (revWalk.peel(revWalk.parseAny(id)) instanceof RevCommit commit) {
+                tips.add(commit.copy());
+            }
+        }
+        return tips;
+    }
+}
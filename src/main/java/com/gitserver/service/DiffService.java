@@ -0,0 +1,327 @@
+package com.gitserver.service;
+
+import com.gitserver.cache.DiffCache;
+import com.gitserver.config.GitServerConfig;
+import com.gitserver.dto.DiffResult;
+import com.gitserver.dto.FileDiff;
+import com.gitserver.exception.GitOperationException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.patch.FileHeader;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Service for diffing commits against their parent or against each other.
+ * <p>
+ * Each diff reads both trees and all blobs through one {@link ObjectReader}, shared by the
+ * {@link DiffFormatter} and its rename detector. Buffered results are capped per file and in
+ * total, and cached by the pair of trees compared; streamed results only apply the per-file cap.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DiffService {
+
+    private final GitServerConfig config;
+    private final RepositoryService repositoryService;
+    private final FileService fileService;
+    private final DiffCache diffCache;
+
+    /**
+     * Get the changes a commit made relative to its first parent.
+     *
+     * @param patches include unified diff text, or only per-file addition and deletion counts
+     */
+    public DiffResult getCommitDiff(String owner, String repoName, String sha, boolean patches) {
+        return bufferedDiff(owner, repoName, commitRange(sha), patches);
+    }
+
+    /**
+     * Stream the changes a commit made relative to its first parent, one file at a time.
+     *
+     * @return the totals of the diff, without files
+     * @throws IOException only as thrown by the visitor; repository failures are wrapped
+     */
+    public DiffResult streamCommitDiff(String owner, String repoName, String sha, boolean patches,
+                                       FileDiffVisitor visitor) throws IOException {
+        return diff(owner, repoName, commitRange(sha), patches, visitor);
+    }
+
+    /**
+     * Compare two refs. With {@code mergeBase} the head is compared against the merge base of the
+     * two, i.e. only the changes made on the head side are shown.
+     */
+    public DiffResult compare(String owner, String repoName, String base, String head, boolean mergeBase,
+                              boolean patches) {
+        return bufferedDiff(owner, repoName, compareRange(owner, repoName, base, head, mergeBase), patches);
+    }
+
+    /**
+     * Stream the comparison of two refs, one file at a time.
+     *
+     * @return the totals of the diff, without files
+     * @throws IOException only as thrown by the visitor; repository failures are wrapped
+     */
+    public DiffResult streamCompare(String owner, String repoName, String base, String head, boolean mergeBase,
+                                    boolean patches, FileDiffVisitor visitor) throws IOException {
+        return diff(owner, repoName, compareRange(owner, repoName, base, head, mergeBase), patches, visitor);
+    }
+
+    private DiffResult bufferedDiff(String owner, String repoName, RangeResolver resolver, boolean patches) {
+        try {
+            return diff(owner, repoName, resolver, patches, null);
+        } catch (IOException e) {
+            // diff only rethrows the visitor's IOException, and there is no visitor here
+            throw new GitOperationException("Failed to compute diff: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compute a diff, collecting its files into the result, or handing them to the visitor if one is given.
+     */
+    private DiffResult diff(String owner, String repoName, RangeResolver resolver, boolean patches,
+                            FileDiffVisitor visitor) throws IOException {
+        boolean buffered = visitor == null;
+        String repoKey = owner + "/" + repoName;
+        try (Git git = repositoryService.getGitRepository(owner, repoName)) {
+            Repository repository = git.getRepository();
+
+            try (ObjectReader reader = repository.newObjectReader();
+                 RevWalk revWalk = new RevWalk(reader)) {
+                RevCommit[] range = resolver.resolve(repository, revWalk);
+                RevCommit base = range[0];
+                RevCommit head = range[1];
+                ObjectId baseTree = base != null ? base.getTree() : null;
+
+                DiffResult result = DiffResult.builder()
+                        .baseCommit(base != null ? base.getName() : null)
+                        .headCommit(head.getName())
+                        .build();
+
+                DiffCache.CachedDiff cached = buffered ? diffCache.get(repoKey, baseTree, head.getTree(), patches) : null;
+                if (cached != null) {
+                    cached.files().forEach(file -> count(result, file));
+                    result.setFiles(cached.files());
+                    result.setTruncated(cached.truncated());
+                    return result;
+                }
+
+                List<FileDiff> files = new ArrayList<>();
+                ByteArrayOutputStream patchBuffer = new ByteArrayOutputStream();
+                try (DiffFormatter formatter = newFormatter(repository, reader, patchBuffer)) {
+                    List<DiffEntry> entries = formatter.scan(baseTree, head.getTree());
+                    long totalPatchSize = 0;
+                    for (DiffEntry entry : entries) {
+                        boolean withinTotal = !buffered || totalPatchSize < config.getDiffMaxTotalSize();
+                        FileDiff file = patches && withinTotal
+                                ? formatPatch(formatter, patchBuffer, entry)
+                                : countChanges(formatter, entry, patches);
+                        if (buffered && file.getPatch() != null) {
+                            totalPatchSize += file.getPatch().length();
+                            if (totalPatchSize > config.getDiffMaxTotalSize()) {
+                                file.setPatch(null);
+                                file.setTruncated(true);
+                            }
+                        }
+                        result.setTruncated(result.isTruncated() || file.isTruncated());
+                        count(result, file);
+                        if (buffered) {
+                            files.add(file);
+                        } else {
+                            VisitorException.visit(() -> visitor.visit(file));
+                        }
+                    }
+                }
+                if (buffered) {
+                    result.setFiles(List.copyOf(files));
+                    diffCache.put(repoKey, baseTree, head.getTree(), patches,
+                            new DiffCache.CachedDiff(result.getFiles(), result.isTruncated()));
+                }
+                return result;
+            }
+        } catch (VisitorException e) {
+            throw e.getCause();
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to compute diff: " + e.getMessage(), e);
+        }
+    }
+
+    private DiffFormatter newFormatter(Repository repository, ObjectReader reader, ByteArrayOutputStream out) {
+        DiffFormatter formatter = new DiffFormatter(out);
+        formatter.setReader(reader, repository.getConfig());
+        formatter.setDiffComparator(RawTextComparator.DEFAULT);
+        formatter.setBinaryFileThreshold(config.getDiffMaxFileSize());
+        formatter.setDetectRenames(true);
+        formatter.getRenameDetector().setRenameLimit(config.getDiffRenameLimit());
+        return formatter;
+    }
+
+    /**
+     * Format one file's patch and count its changed lines from the patch text.
+     */
+    private FileDiff formatPatch(DiffFormatter formatter, ByteArrayOutputStream out, DiffEntry entry)
+            throws IOException {
+        out.reset();
+        formatter.format(entry);
+        formatter.flush();
+        byte[] patch = out.toByteArray();
+
+        FileDiff file = newFileDiff(entry);
+        int additions = 0;
+        int deletions = 0;
+        boolean inHunk = false;
+        boolean binary = false;
+        int lineStart = 0;
+        while (lineStart < patch.length) {
+            int lineEnd = lineStart;
+            while (lineEnd < patch.length && patch[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            if (lineEnd > lineStart) {
+                byte first = patch[lineStart];
+                if (first == '@' && startsWith(patch, lineStart, "@@")) {
+                    inHunk = true;
+                } else if (inHunk && first == '+') {
+                    additions++;
+                } else if (inHunk && first == '-') {
+                    deletions++;
+                } else if (!inHunk && startsWith(patch, lineStart, "Binary files ")) {
+                    binary = true;
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        file.setAdditions(additions);
+        file.setDeletions(deletions);
+        file.setBinary(binary);
+
+        if (patch.length > config.getDiffMaxPatchSize()) {
+            file.setTruncated(true);
+        } else {
+            file.setPatch(new String(patch, StandardCharsets.UTF_8));
+        }
+        return file;
+    }
+
+    /**
+     * Count one file's changed lines from its edit list, without formatting any patch text.
+     */
+    private static FileDiff countChanges(DiffFormatter formatter, DiffEntry entry, boolean patchesRequested)
+            throws IOException {
+        FileHeader header = formatter.toFileHeader(entry);
+        FileDiff file = newFileDiff(entry);
+        int additions = 0;
+        int deletions = 0;
+        for (Edit edit : header.toEditList()) {
+            additions += edit.getLengthB();
+            deletions += edit.getLengthA();
+        }
+        file.setAdditions(additions);
+        file.setDeletions(deletions);
+        file.setBinary(header.getPatchType() == FileHeader.PatchType.BINARY);
+        // Patches were wanted but the total cap was already reached
+        file.setTruncated(patchesRequested);
+        return file;
+    }
+
+    private static FileDiff newFileDiff(DiffEntry entry) {
+        DiffEntry.ChangeType type = entry.getChangeType();
+        return FileDiff.builder()
+                .changeType(type.name())
+                .oldPath(type == DiffEntry.ChangeType.ADD ? null : entry.getOldPath())
+                .newPath(type == DiffEntry.ChangeType.DELETE ? null : entry.getNewPath())
+                .oldSha(type == DiffEntry.ChangeType.ADD ? null : entry.getOldId().name())
+                .newSha(type == DiffEntry.ChangeType.DELETE ? null : entry.getNewId().name())
+                .similarity(entry.getScore())
+                .build();
+    }
+
+    private static void count(DiffResult result, FileDiff file) {
+        result.setChangedFiles(result.getChangedFiles() + 1);
+        result.setAdditions(result.getAdditions() + file.getAdditions());
+        result.setDeletions(result.getDeletions() + file.getDeletions());
+    }
+
+    private RangeResolver commitRange(String sha) {
+        return (repository, revWalk) -> {
+            ObjectId commitId = repository.resolve(sha);
+            if (commitId == null) {
+                throw new GitOperationException("Commit not found: " + sha);
+            }
+            RevCommit head = revWalk.parseCommit(commitId);
+            RevCommit parent = null;
+            if (head.getParentCount() > 0) {
+                parent = head.getParent(0);
+                revWalk.parseHeaders(parent);
+            }
+            return new RevCommit[] {parent, head};
+        };
+    }
+
+    private RangeResolver compareRange(String owner, String repoName, String base, String head, boolean mergeBase) {
+        return (repository, revWalk) -> {
+            RevCommit baseCommit = revWalk.parseCommit(fileService.resolveRefId(owner, repoName, base));
+            RevCommit headCommit = revWalk.parseCommit(fileService.resolveRefId(owner, repoName, head));
+            if (!mergeBase) {
+                return new RevCommit[] {baseCommit, headCommit};
+            }
+
+            revWalk.setRevFilter(RevFilter.MERGE_BASE);
+            revWalk.markStart(baseCommit);
+            revWalk.markStart(headCommit);
+            RevCommit common = revWalk.next();
+            if (common == null) {
+                throw new IllegalArgumentException("No common ancestor between " + base + " and " + head);
+            }
+            revWalk.reset();
+            revWalk.setRevFilter(RevFilter.ALL);
+            revWalk.parseHeaders(common);
+            return new RevCommit[] {common, headCommit};
+        };
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, String prefix) {
+        if (bytes.length - offset < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (bytes[offset + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Receives the files of a diff in path order as they are computed.
+     */
+    @FunctionalInterface
+    public interface FileDiffVisitor {
+        void visit(FileDiff file) throws IOException;
+    }
+
+    /**
+     * Resolves the base and head commits of a diff; the base is {@code null} for the empty tree.
+     */
+    @FunctionalInterface
+    private interface RangeResolver {
+        RevCommit[] resolve(Repository repository, RevWalk revWalk) throws IOException;
+    }
+}
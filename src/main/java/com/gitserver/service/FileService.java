@@ -1,15 +1,27 @@
 package com.gitserver.service;
 
+import com.gitserver.cache.CommitCache;
+import com.gitserver.cache.CommitWalkCache;
+import com.gitserver.cache.ContentCache;
+import com.gitserver.cache.RefResolutionCache;
+import com.gitserver.config.GitServerConfig;
 import com.gitserver.dto.CommitInfo;
+import com.gitserver.dto.CommitPage;
 import com.gitserver.dto.FileContent;
+import com.gitserver.dto.RecursiveTree;
 import com.gitserver.dto.TreeEntry;
 import com.gitserver.exception.GitOperationException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevTree;
@@ -17,8 +29,12 @@ import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.treewalk.filter.PathFilter;
 import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 
@@ -30,12 +46,47 @@ import java.util.*;
 @Slf4j
 public class FileService {
 
+    // Directories first, then by name
+    private static final Comparator<TreeEntry> TREE_ORDER = (a, b) -> {
+        if (a.getType().equals(b.getType())) {
+            return a.getName().compareToIgnoreCase(b.getName());
+        }
+        return a.getType().equals("directory") ? -1 : 1;
+    };
+
+    private final GitServerConfig config;
     private final RepositoryService repositoryService;
+    private final RefResolutionCache refCache;
+    private final ContentCache contentCache;
+    private final CommitWalkCache walkCache;
+    private final CommitCache commitCache;
+
+    /**
+     * Resolve a ref to an object ID without reading object data, e.g. to answer conditional requests.
+     */
+    public ObjectId resolveRefId(String owner, String repoName, String ref) {
+        try (Git git = repositoryService.getGitRepository(owner, repoName)) {
+            ObjectId objectId = resolveRef(git.getRepository(), ref);
+            if (objectId == null) {
+                throw new GitOperationException("Ref not found: " + ref);
+            }
+            return objectId;
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to resolve ref: " + e.getMessage(), e);
+        }
+    }
 
     /**
      * Get the file tree for a repository at a specific ref.
      */
     public List<TreeEntry> getTree(String owner, String repoName, String ref, String path) {
+        return getTree(owner, repoName, ref, path, true);
+    }
+
+    /**
+     * Get the file tree for a repository at a specific ref, optionally without file sizes.
+     */
+    public List<TreeEntry> getTree(String owner, String repoName, String ref, String path, boolean includeSizes) {
         try (Git git = repositoryService.getGitRepository(owner, repoName)) {
             Repository repository = git.getRepository();
 
@@ -45,11 +96,20 @@ public class FileService {
                 throw new GitOperationException("Ref not found: " + ref);
             }
 
-            try (RevWalk revWalk = new RevWalk(repository)) {
+            // One reader serves the commit, the tree walk and every size lookup
+            try (ObjectReader reader = repository.newObjectReader();
+                 RevWalk revWalk = new RevWalk(reader)) {
                 RevCommit commit = revWalk.parseCommit(commitId);
                 RevTree tree = commit.getTree();
 
-                return getTreeEntries(repository, tree, path);
+                // Listings depend only on the immutable tree SHA and path
+                String repoKey = owner + "/" + repoName;
+                List<TreeEntry> entries = contentCache.getTreeListing(repoKey, tree, path, includeSizes);
+                if (entries == null) {
+                    entries = getTreeEntries(reader, repoKey, tree, path, includeSizes);
+                    contentCache.putTreeListing(repoKey, tree, path, includeSizes, entries);
+                }
+                return entries;
             }
         } catch (IOException e) {
             throw new GitOperationException("Failed to get tree: " + e.getMessage(), e);
@@ -57,50 +117,207 @@ public class FileService {
     }
 
     /**
-     * Get file content.
+     * Get the whole tree below a path as nested entries, built from a single walk.
      */
-    public FileContent getFileContent(String owner, String repoName, String ref, String path) {
+    public RecursiveTree getRecursiveTree(String owner, String repoName, String ref, String path,
+                                          Integer maxDepth, Integer maxEntries, boolean includeSizes) {
+        int depthLimit = treeMaxDepth(maxDepth);
+        List<TreeEntry> root = new ArrayList<>();
+        Deque<List<TreeEntry>> levels = new ArrayDeque<>();
+        levels.push(root);
+        int[] count = new int[1];
+
+        boolean truncated;
+        try {
+            truncated = walkTree(owner, repoName, ref, path, depthLimit, maxEntries, includeSizes, (entry, depth) -> {
+                while (levels.size() > depth + 1) {
+                    levels.pop();
+                }
+                levels.peek().add(entry);
+                count[0]++;
+                if (entry.getType().equals("directory") && depth + 1 < depthLimit) {
+                    entry.setChildren(new ArrayList<>());
+                    levels.push(entry.getChildren());
+                }
+            });
+        } catch (IOException e) {
+            // walkTree only rethrows the visitor's IOException, and this visitor throws none
+            throw new GitOperationException("Failed to walk tree: " + e.getMessage(), e);
+        }
+
+        sortRecursively(root);
+        return RecursiveTree.builder()
+                .entries(root)
+                .count(count[0])
+                .truncated(truncated)
+                .build();
+    }
+
+    /**
+     * Walk the tree below a path depth-first in one pass, handing each entry to the visitor
+     * as it is read so callers can stream arbitrarily large trees.
+     *
+     * @return true if the walk stopped at the entry limit
+     * @throws IOException only as thrown by the visitor; repository failures are wrapped
+     */
+    public boolean walkTree(String owner, String repoName, String ref, String path, Integer maxDepth,
+                            Integer maxEntries, boolean includeSizes, TreeVisitor visitor) throws IOException {
+        int depthLimit = treeMaxDepth(maxDepth);
+        int entryLimit = maxEntries == null || maxEntries <= 0
+                ? config.getTreeMaxEntries() : Math.min(maxEntries, config.getTreeMaxEntries());
+
         try (Git git = repositoryService.getGitRepository(owner, repoName)) {
             Repository repository = git.getRepository();
 
-            // Resolve the ref to a commit
             ObjectId commitId = resolveRef(repository, ref);
             if (commitId == null) {
                 throw new GitOperationException("Ref not found: " + ref);
             }
 
-            try (RevWalk revWalk = new RevWalk(repository)) {
-                RevCommit commit = revWalk.parseCommit(commitId);
-                RevTree tree = commit.getTree();
+            try (ObjectReader reader = repository.newObjectReader();
+                 RevWalk revWalk = new RevWalk(reader)) {
+                RevTree tree = revWalk.parseCommit(commitId).getTree();
+                String dirPath = normalizeDirectory(path);
+                ObjectId dirId = findDirectory(reader, tree, dirPath);
+                if (dirId == null) {
+                    return false;
+                }
+                String prefix = dirPath.isEmpty() ? "" : dirPath + "/";
+
+                try (TreeWalk treeWalk = new TreeWalk(reader)) {
+                    treeWalk.addTree(dirId);
+                    treeWalk.setRecursive(false);
+
+                    int count = 0;
+                    while (treeWalk.next()) {
+                        if (count == entryLimit) {
+                            return true;
+                        }
+                        int depth = treeWalk.getDepth();
+                        TreeEntry entry = toTreeEntry(reader, treeWalk, prefix + treeWalk.getPathString(),
+                                includeSizes);
+                        VisitorException.visit(() -> visitor.visit(entry, depth));
+                        count++;
+                        if (treeWalk.isSubtree() && depth + 1 < depthLimit) {
+                            treeWalk.enterSubtree();
+                        }
+                    }
+                    return false;
+                }
+            }
+        } catch (VisitorException e) {
+            throw e.getCause();
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to walk tree: " + e.getMessage(), e);
+        }
+    }
 
-                try (TreeWalk treeWalk = new TreeWalk(repository)) {
-                    treeWalk.addTree(tree);
-                    treeWalk.setRecursive(true);
-                    treeWalk.setFilter(PathFilter.create(path));
+    /**
+     * Get file content.
+     * <p>
+     * Text files up to the stream threshold are returned as UTF-8; binary files, and any file
+     * between the stream threshold and the inline limit, as base64. Files larger than the
+     * inline limit carry no content, only a {@code downloadUrl} to the raw endpoint.
+     */
+    public FileContent getFileContent(String owner, String repoName, String ref, String path) {
+        try (RawBlob blob = openRawBlob(owner, repoName, ref, path)) {
+            return readFileContent(owner, repoName, ref, path, blob);
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to get file content: " + e.getMessage(), e);
+        }
+    }
 
-                    if (!treeWalk.next()) {
-                        throw new GitOperationException("File not found: " + path);
-                    }
+    /**
+     * Build the file content response for an opened blob, loading content only if it may be inlined.
+     */
+    public FileContent readFileContent(String owner, String repoName, String ref, String path, RawBlob blob)
+            throws IOException {
+        FileContent content = describeFile(owner, repoName, ref, path, blob);
+        if (blob.getSize() > config.getContentsMaxInlineSize()) {
+            return content;
+        }
 
-                    ObjectId objectId = treeWalk.getObjectId(0);
-                    ObjectLoader loader = repository.open(objectId);
-
-                    byte[] bytes = loader.getBytes();
-                    String content = new String(bytes, StandardCharsets.UTF_8);
-
-                    return FileContent.builder()
-                            .name(treeWalk.getNameString())
-                            .path(path)
-                            .sha(objectId.getName())
-                            .size(loader.getSize())
-                            .content(Base64.getEncoder().encodeToString(bytes))
-                            .encoding("base64")
-                            .type("file")
-                            .build();
+        byte[] bytes = blob.readBytes();
+        if (!blob.isCached()) {
+            contentCache.putBlob(owner + "/" + repoName, blob.getSha(), bytes);
+        }
+
+        String text = decodeText(bytes);
+        if (text != null) {
+            content.setContent(text);
+            content.setEncoding("utf-8");
+        } else {
+            content.setContent(Base64.getEncoder().encodeToString(bytes));
+            content.setEncoding("base64");
+        }
+        return content;
+    }
+
+    /**
+     * Describe an opened blob without its content, which is marked with encoding {@code none}.
+     */
+    public FileContent describeFile(String owner, String repoName, String ref, String path, RawBlob blob) {
+        return FileContent.builder()
+                .name(blob.getName())
+                .path(path)
+                .sha(blob.getSha().getName())
+                .size(blob.getSize())
+                .encoding("none")
+                .type("file")
+                .downloadUrl(UriComponentsBuilder.fromPath("/api/repos")
+                        .pathSegment(owner, repoName, "raw", ref)
+                        .pathSegment(path.split("/"))
+                        .build()
+                        .encode()
+                        .toUriString())
+                .build();
+    }
+
+    /**
+     * Whether a blob's content should be streamed as base64 rather than built in memory.
+     */
+    public boolean isStreamedContent(RawBlob blob) {
+        long size = blob.getSize();
+        return size > config.getContentsStreamThreshold() && size <= config.getContentsMaxInlineSize();
+    }
+
+    /**
+     * Open a file for streaming without loading its content.
+     * <p>
+     * The returned blob holds a repository lease and must be closed once written.
+     */
+    public RawBlob openRawBlob(String owner, String repoName, String ref, String path) {
+        Git git = repositoryService.getGitRepository(owner, repoName);
+        try {
+            Repository repository = git.getRepository();
+
+            ObjectId commitId = resolveRef(repository, ref);
+            if (commitId == null) {
+                throw new GitOperationException("Ref not found: " + ref);
+            }
+
+            try (RevWalk revWalk = new RevWalk(repository)) {
+                RevTree tree = revWalk.parseCommit(commitId).getTree();
+                String repoKey = owner + "/" + repoName;
+
+                ContentCache.BlobPath blobPath = contentCache.getPath(repoKey, tree, path);
+                if (blobPath == null) {
+                    blobPath = findBlob(repository, tree, path);
+                    contentCache.putPath(repoKey, tree, path, blobPath);
                 }
+
+                ContentCache.CachedBlob cached = contentCache.getBlob(repoKey, blobPath.blobId());
+                ObjectLoader loader = cached == null
+                        ? repository.open(blobPath.blobId(), Constants.OBJ_BLOB)
+                        : null;
+                return new RawBlob(git, blobPath, cached, loader);
             }
         } catch (IOException e) {
-            throw new GitOperationException("Failed to get file content: " + e.getMessage(), e);
+            git.close();
+            throw new GitOperationException("Failed to open file: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            git.close();
+            throw e;
         }
     }
 
@@ -108,6 +325,94 @@ public class FileService {
      * Get commit history.
      */
     public List<CommitInfo> getCommits(String owner, String repoName, String ref, int limit) {
+        return getCommitPage(owner, repoName, ref, null, limit, null).getCommits();
+    }
+
+    /**
+     * Get one page of commit history, continuing from a cursor returned with the previous page.
+     * If a path is given, only commits that changed it are returned.
+     * <p>
+     * The cursor encodes the walk's frontier, i.e. the commits still queued to be emitted, so any
+     * page can be resumed without re-walking earlier ones. Sequential requests usually continue
+     * the live walk from {@link CommitWalkCache} instead of rebuilding it.
+     */
+    public CommitPage getCommitPage(String owner, String repoName, String ref, String path, int limit,
+                                    String cursor) {
+        path = normalizeDirectory(path);
+        // A walk can only be continued by requests for the same repository and path
+        String scope = owner + "/" + repoName + ":" + path;
+        List<ObjectId> start = cursor != null ? decodeCursor(cursor) : null;
+
+        CommitWalkCache.CachedWalk walk = cursor != null ? walkCache.take(scope, cursor) : null;
+        if (walk == null) {
+            walk = openWalk(owner, repoName, ref, path, scope, start);
+        }
+
+        boolean parked = false;
+        try {
+            RevWalk revWalk = walk.getRevWalk();
+            String repoKey = owner + "/" + repoName;
+            Set<ObjectId> frontier = new LinkedHashSet<>(start != null ? start : List.of());
+            Set<ObjectId> emitted = new HashSet<>();
+            List<CommitInfo> commits = new ArrayList<>();
+
+            RevCommit commit;
+            while (commits.size() < limit && (commit = revWalk.next()) != null) {
+                // Only the page's own commits need their bodies; the rest of the walk keeps headers
+                CommitCache.CachedCommit cached = commitCache.get(repoKey, commit);
+                if (cached == null) {
+                    revWalk.parseBody(commit);
+                    cached = commitCache.put(repoKey, commit);
+                    commit.disposeBody();
+                }
+                commits.add(toCommitInfo(cached));
+
+                frontier.remove(commit);
+                emitted.add(commit.copy());
+                for (RevCommit parent : commit.getParents()) {
+                    if (!emitted.contains(parent)) {
+                        frontier.add(parent.copy());
+                    }
+                }
+            }
+
+            String nextCursor = null;
+            if (commits.size() == limit && !frontier.isEmpty()) {
+                nextCursor = encodeCursor(frontier);
+                walkCache.put(nextCursor, walk);
+                parked = true;
+            }
+            return CommitPage.builder()
+                    .commits(commits)
+                    .nextCursor(nextCursor)
+                    .build();
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to get commits: " + e.getMessage(), e);
+        } finally {
+            if (!parked) {
+                walk.close();
+            }
+        }
+    }
+
+    /**
+     * Walk the full history of a ref, handing each commit to the visitor as the walk reaches it.
+     * If a path is given, only commits that changed it are visited.
+     * <p>
+     * Commit bodies are parsed one at a time and released straight after, and commits read here
+     * are not added to the commit cache, so exporting a large history neither holds its messages
+     * in memory nor flushes the cache. The walk advances only as fast as the visitor returns,
+     * and stops as soon as the visitor throws.
+     *
+     * @return the number of commits visited
+     * @throws IOException only as thrown by the visitor; repository failures are wrapped
+     */
+    public long walkCommits(String owner, String repoName, String ref, String path, Long maxCount,
+                            CommitVisitor visitor) throws IOException {
+        path = normalizeDirectory(path);
+        String repoKey = owner + "/" + repoName;
+        long limit = maxCount == null || maxCount <= 0 ? Long.MAX_VALUE : maxCount;
+
         try (Git git = repositoryService.getGitRepository(owner, repoName)) {
             Repository repository = git.getRepository();
 
@@ -116,43 +421,102 @@ public class FileService {
                 throw new GitOperationException("Ref not found: " + ref);
             }
 
-            List<CommitInfo> commits = new ArrayList<>();
             try (RevWalk revWalk = new RevWalk(repository)) {
+                revWalk.setRetainBody(false);
+                if (!path.isEmpty()) {
+                    revWalk.setTreeFilter(new ChangedPathTreeFilter(path));
+                }
                 revWalk.markStart(revWalk.parseCommit(commitId));
 
-                int count = 0;
-                for (RevCommit commit : revWalk) {
-                    if (count >= limit) {
-                        break;
-                    }
-
-                    String[] parentShas = new String[commit.getParentCount()];
-                    for (int i = 0; i < commit.getParentCount(); i++) {
-                        parentShas[i] = commit.getParent(i).getName();
+                long count = 0;
+                RevCommit commit;
+                while (count < limit && (commit = revWalk.next()) != null) {
+                    CommitCache.CachedCommit cached = commitCache.get(repoKey, commit);
+                    if (cached != null) {
+                        CommitInfo info = toCommitInfo(cached);
+                        VisitorException.visit(() -> visitor.visit(info));
+                    } else {
+                        revWalk.parseBody(commit);
+                        CommitInfo info = toCommitInfo(commit);
+                        VisitorException.visit(() -> visitor.visit(info));
+                        commit.disposeBody();
                     }
-
-                    commits.add(CommitInfo.builder()
-                            .sha(commit.getName())
-                            .message(commit.getFullMessage())
-                            .author(commit.getAuthorIdent().getName())
-                            .authorEmail(commit.getAuthorIdent().getEmailAddress())
-                            .authorTime(commit.getAuthorIdent().getWhen().getTime())
-                            .committer(commit.getCommitterIdent().getName())
-                            .committerEmail(commit.getCommitterIdent().getEmailAddress())
-                            .committerTime(commit.getCommitterIdent().getWhen().getTime())
-                            .parentShas(parentShas)
-                            .build());
-
                     count++;
                 }
+                return count;
             }
-
-            return commits;
+        } catch (VisitorException e) {
+            throw e.getCause();
         } catch (IOException e) {
+            throw new GitOperationException("Failed to walk commits: " + e.getMessage(), e);
+        }
+    }
+
+    private CommitWalkCache.CachedWalk openWalk(String owner, String repoName, String ref, String path, String scope,
+                                                List<ObjectId> start) {
+        Git git = repositoryService.getGitRepository(owner, repoName);
+        RevWalk revWalk = null;
+        try {
+            Repository repository = git.getRepository();
+            revWalk = new RevWalk(repository);
+            revWalk.setRetainBody(false);
+            if (!path.isEmpty()) {
+                revWalk.setTreeFilter(new ChangedPathTreeFilter(path));
+            }
+
+            if (start == null) {
+                ObjectId commitId = resolveRef(repository, ref);
+                if (commitId == null) {
+                    throw new GitOperationException("Ref not found: " + ref);
+                }
+                start = List.of(commitId);
+            }
+            for (ObjectId id : start) {
+                revWalk.markStart(revWalk.parseCommit(id));
+            }
+            return new CommitWalkCache.CachedWalk(scope, git, revWalk);
+        } catch (IOException | RuntimeException e) {
+            if (revWalk != null) {
+                revWalk.close();
+            }
+            git.close();
+            if (e instanceof MissingObjectException || e instanceof IncorrectObjectTypeException) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+            if (e instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
             throw new GitOperationException("Failed to get commits: " + e.getMessage(), e);
         }
     }
 
+    private static String encodeCursor(Collection<ObjectId> frontier) {
+        byte[] raw = new byte[frontier.size() * Constants.OBJECT_ID_LENGTH];
+        int offset = 0;
+        for (ObjectId id : frontier) {
+            id.copyRawTo(raw, offset);
+            offset += Constants.OBJECT_ID_LENGTH;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    private static List<ObjectId> decodeCursor(String cursor) {
+        byte[] raw;
+        try {
+            raw = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+        if (raw.length == 0 || raw.length % Constants.OBJECT_ID_LENGTH != 0) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        List<ObjectId> ids = new ArrayList<>(raw.length / Constants.OBJECT_ID_LENGTH);
+        for (int offset = 0; offset < raw.length; offset += Constants.OBJECT_ID_LENGTH) {
+            ids.add(ObjectId.fromRaw(raw, offset));
+        }
+        return ids;
+    }
+
     /**
      * Get a specific commit.
      */
@@ -166,92 +530,174 @@ public class FileService {
             }
 
             try (RevWalk revWalk = new RevWalk(repository)) {
-                RevCommit commit = revWalk.parseCommit(commitId);
-
-                String[] parentShas = new String[commit.getParentCount()];
-                for (int i = 0; i < commit.getParentCount(); i++) {
-                    parentShas[i] = commit.getParent(i).getName();
-                }
-
-                return CommitInfo.builder()
-                        .sha(commit.getName())
-                        .message(commit.getFullMessage())
-                        .author(commit.getAuthorIdent().getName())
-                        .authorEmail(commit.getAuthorIdent().getEmailAddress())
-                        .authorTime(commit.getAuthorIdent().getWhen().getTime())
-                        .committer(commit.getCommitterIdent().getName())
-                        .committerEmail(commit.getCommitterIdent().getEmailAddress())
-                        .committerTime(commit.getCommitterIdent().getWhen().getTime())
-                        .parentShas(parentShas)
-                        .build();
+                return toCommitInfo(commitCache.load(owner + "/" + repoName, revWalk, commitId));
             }
         } catch (IOException e) {
             throw new GitOperationException("Failed to get commit: " + e.getMessage(), e);
         }
     }
 
-    private List<TreeEntry> getTreeEntries(Repository repository, RevTree tree, String path) throws IOException {
-        List<TreeEntry> entries = new ArrayList<>();
+    private static CommitInfo toCommitInfo(RevCommit commit) {
+        String[] parentShas = new String[commit.getParentCount()];
+        for (int i = 0; i < parentShas.length; i++) {
+            parentShas[i] = commit.getParent(i).getName();
+        }
+
+        return CommitInfo.builder()
+                .sha(commit.getName())
+                .message(commit.getFullMessage())
+                .author(commit.getAuthorIdent().getName())
+                .authorEmail(commit.getAuthorIdent().getEmailAddress())
+                .authorTime(commit.getAuthorIdent().getWhen().getTime())
+                .committer(commit.getCommitterIdent().getName())
+                .committerEmail(commit.getCommitterIdent().getEmailAddress())
+                .committerTime(commit.getCommitterIdent().getWhen().getTime())
+                .parentShas(parentShas)
+                .build();
+    }
+
+    private static CommitInfo toCommitInfo(CommitCache.CachedCommit commit) {
+        String[] parentShas = new String[commit.parents().length];
+        for (int i = 0; i < parentShas.length; i++) {
+            parentShas[i] = commit.parents()[i].getName();
+        }
+
+        CommitCache.Identity author = commit.author();
+        CommitCache.Identity committer = commit.committer();
+        return CommitInfo.builder()
+                .sha(commit.getName())
+                .message(commit.message())
+                .author(author != null ? author.name() : null)
+                .authorEmail(author != null ? author.email() : null)
+                .authorTime(commit.authorTime())
+                .committer(committer != null ? committer.name() : null)
+                .committerEmail(committer != null ? committer.email() : null)
+                .committerTime(commit.committerTime())
+                .parentShas(parentShas)
+                .build();
+    }
 
+    private static String decodeText(byte[] bytes) {
+        if (RawText.isBinary(bytes)) {
+            return null;
+        }
+        try {
+            // The default decoder reports malformed input, so non-UTF-8 text falls back to base64
+            return StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(bytes)).toString();
+        } catch (CharacterCodingException e) {
+            return null;
+        }
+    }
+
+    private ContentCache.BlobPath findBlob(Repository repository, RevTree tree, String path) throws IOException {
         try (TreeWalk treeWalk = new TreeWalk(repository)) {
             treeWalk.addTree(tree);
-            treeWalk.setRecursive(false);
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(PathFilter.create(path));
 
-            if (path != null && !path.isEmpty()) {
-                treeWalk.setFilter(PathFilter.create(path));
-                // We need to enter the directory
-                while (treeWalk.next()) {
-                    if (treeWalk.getPathString().equals(path) && treeWalk.isSubtree()) {
-                        treeWalk.enterSubtree();
-                        break;
-                    }
-                }
+            if (!treeWalk.next() || !treeWalk.getPathString().equals(path)) {
+                throw new GitOperationException("File not found: " + path);
             }
 
+            return new ContentCache.BlobPath(treeWalk.getNameString(), treeWalk.getObjectId(0),
+                    treeWalk.getRawMode(0));
+        }
+    }
+
+    private List<TreeEntry> getTreeEntries(ObjectReader reader, String repoKey, RevTree tree, String path,
+                                           boolean includeSizes) throws IOException {
+        path = normalizeDirectory(path);
+        boolean root = path.isEmpty();
+        ObjectId dirId = findDirectory(reader, tree, path);
+        if (dirId == null) {
+            return List.of();
+        }
+
+        // Sizes are keyed by the directory's own tree SHA, so unchanged directories reuse them across commits
+        long[] sizes = includeSizes ? contentCache.getTreeSizes(repoKey, dirId) : null;
+        boolean computeSizes = includeSizes && sizes == null;
+        List<Long> computed = computeSizes ? new ArrayList<>() : null;
+
+        List<TreeEntry> entries = new ArrayList<>();
+        try (TreeWalk treeWalk = new TreeWalk(reader)) {
+            treeWalk.addTree(dirId);
+            treeWalk.setRecursive(false);
+
+            String prefix = root ? "" : path + "/";
+            int index = 0;
             while (treeWalk.next()) {
-                String entryPath = treeWalk.getPathString();
-                
-                // If we have a path filter, only include direct children
-                if (path != null && !path.isEmpty()) {
-                    String relativePath = entryPath.substring(path.length());
-                    if (relativePath.startsWith("/")) {
-                        relativePath = relativePath.substring(1);
-                    }
-                    if (relativePath.contains("/")) {
-                        continue;
-                    }
+                TreeEntry entry = toTreeEntry(reader, treeWalk, prefix + treeWalk.getNameString(), computeSizes);
+                if (computeSizes) {
+                    computed.add(entry.getSize());
+                } else if (includeSizes) {
+                    entry.setSize(sizes[index]);
                 }
+                index++;
+                entries.add(entry);
+            }
+        }
+        if (computeSizes) {
+            contentCache.putTreeSizes(repoKey, dirId, computed.stream().mapToLong(Long::longValue).toArray());
+        }
 
-                ObjectId objectId = treeWalk.getObjectId(0);
-                FileMode fileMode = treeWalk.getFileMode(0);
+        entries.sort(TREE_ORDER);
+        return entries;
+    }
 
-                String type = treeWalk.isSubtree() ? "directory" : "file";
-                long size = 0;
-                if (!treeWalk.isSubtree()) {
-                    ObjectLoader loader = repository.open(objectId);
-                    size = loader.getSize();
-                }
+    private TreeEntry toTreeEntry(ObjectReader reader, TreeWalk treeWalk, String path, boolean includeSizes)
+            throws IOException {
+        ObjectId objectId = treeWalk.getObjectId(0);
+        FileMode fileMode = treeWalk.getFileMode(0);
+        boolean directory = treeWalk.isSubtree();
+
+        Long size = null;
+        if (includeSizes) {
+            // Gitlinks name commits in other repositories, so they have no size here
+            size = directory || fileMode == FileMode.GITLINK
+                    ? 0L : reader.getObjectSize(objectId, Constants.OBJ_BLOB);
+        }
+
+        return TreeEntry.builder()
+                .name(treeWalk.getNameString())
+                .path(path)
+                .type(directory ? "directory" : "file")
+                .mode(Integer.toOctalString(fileMode.getBits()))
+                .sha(objectId.getName())
+                .size(size)
+                .build();
+    }
 
-                entries.add(TreeEntry.builder()
-                        .name(treeWalk.getNameString())
-                        .path(entryPath)
-                        .type(type)
-                        .mode(Integer.toOctalString(fileMode.getBits()))
-                        .sha(objectId.getName())
-                        .size(size)
-                        .build());
+    private static void sortRecursively(List<TreeEntry> entries) {
+        entries.sort(TREE_ORDER);
+        for (TreeEntry entry : entries) {
+            if (entry.getChildren() != null) {
+                sortRecursively(entry.getChildren());
             }
         }
+    }
 
-        // Sort: directories first, then by name
-        entries.sort((a, b) -> {
-            if (a.getType().equals(b.getType())) {
-                return a.getName().compareToIgnoreCase(b.getName());
-            }
-            return a.getType().equals("directory") ? -1 : 1;
-        });
+    private int treeMaxDepth(Integer maxDepth) {
+        return maxDepth == null || maxDepth <= 0
+                ? config.getTreeMaxDepth() : Math.min(maxDepth, config.getTreeMaxDepth());
+    }
 
-        return entries;
+    private static String normalizeDirectory(String path) {
+        return path == null ? "" : path.replaceAll("^/+|/+$", "");
+    }
+
+    /**
+     * Find the tree SHA of a directory, or {@code null} if the path is missing or not a directory.
+     */
+    private static ObjectId findDirectory(ObjectReader reader, RevTree tree, String path) throws IOException {
+        if (path.isEmpty()) {
+            return tree;
+        }
+        try (TreeWalk dirWalk = TreeWalk.forPath(reader, path, tree)) {
+            if (dirWalk == null || !dirWalk.isSubtree()) {
+                return null;
+            }
+            return dirWalk.getObjectId(0);
+        }
     }
 
     private ObjectId resolveRef(Repository repository, String ref) throws IOException {
@@ -259,6 +705,23 @@ public class FileService {
             ref = "HEAD";
         }
 
+        // A full SHA always names the same object, so there is nothing to cache
+        if (ObjectId.isId(ref)) {
+            return repository.resolve(ref);
+        }
+
+        RefResolutionCache.RefSnapshot snapshot = refCache.snapshot(repository);
+        ObjectId objectId = snapshot.get(ref);
+        if (objectId == null) {
+            objectId = resolveUncached(repository, ref);
+            if (objectId != null) {
+                snapshot.put(ref, objectId);
+            }
+        }
+        return objectId;
+    }
+
+    private ObjectId resolveUncached(Repository repository, String ref) throws IOException {
         // Try to resolve as-is
         ObjectId objectId = repository.resolve(ref);
         if (objectId != null) {
@@ -275,4 +738,72 @@ public class FileService {
         objectId = repository.resolve("refs/tags/" + ref);
         return objectId;
     }
+
+    /**
+     * Receives tree entries in walk order; {@code depth} is 0 for direct children of the walked path.
+     */
+    @FunctionalInterface
+    public interface TreeVisitor {
+        void visit(TreeEntry entry, int depth) throws IOException;
+    }
+
+    /**
+     * Receives commits in walk order, newest first.
+     */
+    @FunctionalInterface
+    public interface CommitVisitor {
+        void visit(CommitInfo commit) throws IOException;
+    }
+
+    /**
+     * A file opened for streaming, backed by either the content cache or the object database.
+     */
+    public static final class RawBlob implements AutoCloseable {
+        private final Git git;
+        private final ContentCache.BlobPath blobPath;
+        private final ContentCache.CachedBlob cached;
+        private final ObjectLoader loader;
+
+        private RawBlob(Git git, ContentCache.BlobPath blobPath, ContentCache.CachedBlob cached, ObjectLoader loader) {
+            this.git = git;
+            this.blobPath = blobPath;
+            this.cached = cached;
+            this.loader = loader;
+        }
+
+        public String getName() {
+            return blobPath.name();
+        }
+
+        public ObjectId getSha() {
+            return blobPath.blobId();
+        }
+
+        public long getSize() {
+            return cached != null ? cached.size() : loader.getSize();
+        }
+
+        public boolean isCached() {
+            return cached != null;
+        }
+
+        /**
+         * Read the whole content; callers must check the size first.
+         */
+        public byte[] readBytes() throws IOException {
+            return cached != null ? cached.getBytes() : loader.getCachedBytes(Math.toIntExact(loader.getSize()));
+        }
+
+        /**
+         * Open a new stream over the content; large objects are inflated incrementally.
+         */
+        public InputStream openStream() throws IOException {
+            return cached != null ? cached.openStream() : loader.openStream();
+        }
+
+        @Override
+        public void close() {
+            git.close();
+        }
+    }
 }
@@ -0,0 +1,556 @@
+package com.gitserver.service;
+
+import com.gitserver.cache.UploadPackCache;
+import com.gitserver.config.GitServerConfig;
+import com.gitserver.dto.AdvertisementStats;
+import com.gitserver.dto.TransportStats;
+import com.gitserver.exception.GitOperationException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.pack.PackStatistics;
+import org.eclipse.jgit.transport.CapabilitiesV2Request;
+import org.eclipse.jgit.transport.FetchV2Request;
+import org.eclipse.jgit.transport.LsRefsV2Request;
+import org.eclipse.jgit.transport.ObjectInfoRequest;
+import org.eclipse.jgit.transport.PacketLineOut;
+import org.eclipse.jgit.transport.PreUploadHook;
+import org.eclipse.jgit.transport.ProtocolV2Hook;
+import org.eclipse.jgit.transport.ReceivePack;
+import org.eclipse.jgit.transport.RefAdvertiser.PacketLineOutRefAdvertiser;
+import org.eclipse.jgit.transport.ServiceMayNotContinueException;
+import org.eclipse.jgit.transport.TransferConfig;
+import org.eclipse.jgit.transport.UploadPack;
+import org.eclipse.jgit.util.io.CountingOutputStream;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves the Git pack protocols (upload-pack for clone and fetch, receive-pack for push) on
+ * repositories leased from the repository cache.
+ * <p>
+ * Callers pass the raw request and response streams; pack data is written straight to the
+ * response as JGit produces it, except for clones whose complete response is already held
+ * by the {@link UploadPackCache}. Every exchange is counted per transport and service, so
+ * clone, fetch and push throughput can be read from {@link #getStats()}.
+ * <p>
+ * Clients asking for protocol v2 get it on every transport: refs are then listed by
+ * {@code ls-refs}, which only returns the refs under the client's {@code ref-prefix}es,
+ * instead of up front in full. The size of every ref advertisement is recorded per
+ * protocol version, see {@link #getAdvertisementStats()}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GitTransportService {
+
+    public static final String UPLOAD_PACK = "git-upload-pack";
+    public static final String RECEIVE_PACK = "git-receive-pack";
+
+    // A clone request is a few wants per advertised ref; anything larger is negotiated as usual
+    private static final int MAX_CACHEABLE_REQUEST_BYTES = 1024 * 1024;
+
+    private static final String PROTOCOL_V2 = "version=2";
+
+    private final GitServerConfig config;
+    private final RepositoryService repositoryService;
+    private final UploadPackCache packCache;
+
+    private final ConcurrentMap<String, Counters> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AdvertisementCounters> advertisements = new ConcurrentHashMap<>();
+
+    /**
+     * Write the ref advertisement of a service, preceded by the {@code # service=} line smart
+     * HTTP clients expect.
+     *
+     * @param protocol the client's {@code Git-Protocol} parameters, e.g. {@code version=2}, or {@code null}
+     */
+    public void advertiseRefs(String owner, String name, String transport, String service, String protocol,
+                              OutputStream out) {
+        ClientOutputStream clientOut = new ClientOutputStream(out);
+        try (Git git = repositoryService.getGitRepository(owner, name)) {
+            CountingOutputStream countingOut = new CountingOutputStream(clientOut);
+            PacketLineOut packetLineOut = new PacketLineOut(countingOut);
+            PacketLineOutRefAdvertiser advertiser = new PacketLineOutRefAdvertiser(packetLineOut);
+            if (UPLOAD_PACK.equals(service)) {
+                UploadPack uploadPack = newUploadPack(git, protocol, true);
+                try {
+                    // Protocol v2 replaces the ref list with a capability advertisement
+                    uploadPack.sendAdvertisedRefs(advertiser, service);
+                } finally {
+                    uploadPack.getRevWalk().close();
+                }
+                if (!isProtocolV2(protocol)) {
+                    advertisement(transport, "v0").record(countingOut.getCount(), false);
+                }
+            } else if (RECEIVE_PACK.equals(service)) {
+                packetLineOut.writeString("# service=" + service + "\n");
+                packetLineOut.end();
+                ReceivePack receivePack = newReceivePack(git, true);
+                try {
+                    receivePack.sendAdvertisedRefs(advertiser);
+                } finally {
+                    receivePack.getRevWalk().close();
+                }
+            } else {
+                throw new IllegalArgumentException("Unsupported service: " + service);
+            }
+        } catch (IOException e) {
+            if (clientOut.failed) {
+                log.debug("Ref advertisement of {}/{} over {} aborted by the client: {}",
+                        owner, name, transport, e.getMessage());
+                return;
+            }
+            throw new GitOperationException("Failed to advertise refs: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Run upload-pack: read the client's wants and haves and stream back the pack.
+     *
+     * @param statelessRpc whether the request arrives as one smart HTTP body; otherwise the refs are
+     *                     advertised first and negotiation runs over the open streams, as over SSH
+     * @param messages     where messages go when the client has no side-band channel, or {@code null}
+     */
+    public void uploadPack(String owner, String name, String transport, String protocol, boolean statelessRpc,
+                           InputStream in, OutputStream out, OutputStream messages) {
+        Counters stats = counters(transport, UPLOAD_PACK);
+        CountingInputStream countingIn = new CountingInputStream(in);
+        ClientOutputStream clientOut = new ClientOutputStream(out);
+        CountingOutputStream countingOut = new CountingOutputStream(clientOut);
+        long start = System.nanoTime();
+        boolean failed = false;
+        try (Git git = repositoryService.getGitRepository(owner, name)) {
+            InputStream requestIn = countingIn;
+            UploadPackCache.Key cacheKey = null;
+            if (statelessRpc && packCache.isEnabled()) {
+                // A stateless request is complete and small, so it can be read before upload-pack runs
+                byte[] request = countingIn.readNBytes(MAX_CACHEABLE_REQUEST_BYTES + 1);
+                if (request.length <= MAX_CACHEABLE_REQUEST_BYTES) {
+                    cacheKey = packCache.key(git.getRepository(), protocol, request);
+                }
+                if (cacheKey != null && packCache.replay(cacheKey, countingOut)) {
+                    return;
+                }
+                requestIn = new SequenceInputStream(new ByteArrayInputStream(request), countingIn);
+            }
+
+            UploadPack uploadPack = newUploadPack(git, protocol, statelessRpc);
+            AdvertisementMeter meter = new AdvertisementMeter(transport, countingOut);
+            if (isProtocolV2(protocol)) {
+                uploadPack.setProtocolV2Hook(meter);
+            } else if (!statelessRpc) {
+                // Over a bidirectional stream v0 starts with the full ref list
+                meter.begin("v0", false);
+                uploadPack.setPreUploadHook(meter);
+            }
+            if (cacheKey == null) {
+                uploadPack.uploadWithExceptionPropagation(requestIn, countingOut, messages);
+            } else {
+                UploadPackCache.Recording recording = packCache.record(cacheKey, countingOut);
+                boolean complete = false;
+                try {
+                    uploadPack.uploadWithExceptionPropagation(requestIn, recording, messages);
+                    complete = true;
+                } finally {
+                    if (complete) {
+                        recording.commit();
+                    } else {
+                        recording.abort();
+                    }
+                }
+            }
+            meter.finish();
+            PackStatistics packStatistics = uploadPack.getStatistics();
+            if (packStatistics != null) {
+                stats.objects.addAndGet(packStatistics.getTotalObjects());
+            }
+        } catch (ServiceMayNotContinueException e) {
+            // The error has already been reported to the client in protocol form when output was sent
+            failed = true;
+            if (!e.isOutput()) {
+                throw new GitOperationException("upload-pack failed: " + e.getMessage(), e);
+            }
+        } catch (IOException e) {
+            failed = true;
+            if (countingIn.failed || clientOut.failed) {
+                // The response is already under way, so there is no one left to report an error to
+                log.debug("upload-pack of {}/{} over {} aborted by the client: {}",
+                        owner, name, transport, e.getMessage());
+                return;
+            }
+            throw new GitOperationException("upload-pack failed: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            failed = true;
+            throw e;
+        } finally {
+            record(stats, owner, name, countingIn.count, countingOut.getCount(),
+                    System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * Run receive-pack: read the client's ref updates and pack, apply them and report the result.
+     *
+     * @param statelessRpc whether the request arrives as one smart HTTP body; otherwise the refs are
+     *                     advertised first over the open streams, as over SSH
+     * @param messages     where messages go when the client has no side-band channel, or {@code null}
+     */
+    public void receivePack(String owner, String name, String transport, boolean statelessRpc,
+                            InputStream in, OutputStream out, OutputStream messages) {
+        Counters stats = counters(transport, RECEIVE_PACK);
+        CountingInputStream countingIn = new CountingInputStream(in);
+        ClientOutputStream clientOut = new ClientOutputStream(out);
+        CountingOutputStream countingOut = new CountingOutputStream(clientOut);
+        long start = System.nanoTime();
+        boolean failed = false;
+        try (Git git = repositoryService.getGitRepository(owner, name)) {
+            ReceivePack receivePack = newReceivePack(git, statelessRpc);
+            receivePack.receive(countingIn, countingOut, messages);
+        } catch (IOException e) {
+            failed = true;
+            if (countingIn.failed || clientOut.failed) {
+                log.debug("receive-pack of {}/{} over {} aborted by the client: {}",
+                        owner, name, transport, e.getMessage());
+                return;
+            }
+            throw new GitOperationException("receive-pack failed: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            failed = true;
+            throw e;
+        } finally {
+            record(stats, owner, name, countingIn.count, countingOut.getCount(),
+                    System.nanoTime() - start, failed);
+        }
+    }
+
+    public List<TransportStats> getStats() {
+        List<TransportStats> stats = new ArrayList<>();
+        counters.forEach((key, value) -> stats.add(value.toStats()));
+        stats.sort(Comparator.comparing(TransportStats::getTransport).thenComparing(TransportStats::getService));
+        return stats;
+    }
+
+    /**
+     * Get the sizes of upload-pack ref advertisements per transport and protocol version.
+     */
+    public List<AdvertisementStats> getAdvertisementStats() {
+        List<AdvertisementStats> stats = new ArrayList<>();
+        advertisements.forEach((key, value) -> stats.add(value.toStats()));
+        stats.sort(Comparator.comparing(AdvertisementStats::getTransport).thenComparing(AdvertisementStats::getProtocol));
+        return stats;
+    }
+
+    private UploadPack newUploadPack(Git git, String protocol, boolean statelessRpc) {
+        UploadPack uploadPack = new UploadPack(git.getRepository());
+        uploadPack.setBiDirectionalPipe(!statelessRpc);
+        uploadPack.setTransferConfig(transferConfig(git.getRepository()));
+        if (protocol != null && !protocol.isEmpty()) {
+            uploadPack.setExtraParameters(parseProtocol(protocol));
+        }
+        return uploadPack;
+    }
+
+    private static ReceivePack newReceivePack(Git git, boolean statelessRpc) {
+        ReceivePack receivePack = new ReceivePack(git.getRepository());
+        receivePack.setBiDirectionalPipe(!statelessRpc);
+        return receivePack;
+    }
+
+    /**
+     * The repository's transfer settings with the server's protocol choices applied on top.
+     */
+    private TransferConfig transferConfig(Repository repository) {
+        Config transfer = new Config(repository.getConfig());
+        transfer.setInt("protocol", null, "version", config.isProtocolV2() ? 2 : 0);
+        transfer.setBoolean("uploadpack", null, "allowrefinwant", config.isProtocolRefInWant());
+        return new TransferConfig(transfer);
+    }
+
+    private boolean isProtocolV2(String protocol) {
+        return config.isProtocolV2() && protocol != null && parseProtocol(protocol).contains(PROTOCOL_V2);
+    }
+
+    /**
+     * Split {@code Git-Protocol} / {@code GIT_PROTOCOL} parameters, e.g. {@code version=2:object-format=sha1}.
+     */
+    private static Collection<String> parseProtocol(String protocol) {
+        return Arrays.asList(protocol.split(":"));
+    }
+
+    private Counters counters(String transport, String service) {
+        return counters.computeIfAbsent(transport + " " + service, key -> new Counters(transport, service));
+    }
+
+    private AdvertisementCounters advertisement(String transport, String protocol) {
+        return advertisements.computeIfAbsent(transport + " " + protocol,
+                key -> new AdvertisementCounters(transport, protocol));
+    }
+
+    private static void record(Counters stats, String owner, String name, long bytesIn, long bytesOut, long nanos,
+                               boolean failed) {
+        stats.requests.incrementAndGet();
+        if (failed) {
+            stats.failures.incrementAndGet();
+        }
+        stats.bytesIn.addAndGet(bytesIn);
+        stats.bytesOut.addAndGet(bytesOut);
+        stats.nanos.addAndGet(nanos);
+        log.info("{} {}/{} over {}: {} bytes in, {} bytes out in {} ms{}", stats.service, owner, name,
+                stats.transport, bytesIn, bytesOut, nanos / 1_000_000, failed ? " (failed)" : "");
+    }
+
+    /**
+     * Running totals for one service on one transport.
+     */
+    private static final class Counters {
+        private final String transport;
+        private final String service;
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong bytesIn = new AtomicLong();
+        private final AtomicLong bytesOut = new AtomicLong();
+        private final AtomicLong objects = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+
+        private Counters(String transport, String service) {
+            this.transport = transport;
+            this.service = service;
+        }
+
+        TransportStats toStats() {
+            long totalNanos = nanos.get();
+            long totalBytes = bytesIn.get() + bytesOut.get();
+            return TransportStats.builder()
+                    .transport(transport)
+                    .service(service)
+                    .requests(requests.get())
+                    .failures(failures.get())
+                    .bytesIn(bytesIn.get())
+                    .bytesOut(bytesOut.get())
+                    .objectsSent(objects.get())
+                    .totalMillis(totalNanos / 1_000_000)
+                    .bytesPerSecond(totalNanos == 0 ? 0.0 : totalBytes * 1_000_000_000.0 / totalNanos)
+                    .build();
+        }
+    }
+
+    /**
+     * Running totals of ref advertisement sizes for one protocol version on one transport.
+     */
+    private static final class AdvertisementCounters {
+        private final String transport;
+        private final String protocol;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong refPrefixed = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong maxBytes = new AtomicLong();
+
+        private AdvertisementCounters(String transport, String protocol) {
+            this.transport = transport;
+            this.protocol = protocol;
+        }
+
+        void record(long size, boolean prefixed) {
+            count.incrementAndGet();
+            if (prefixed) {
+                refPrefixed.incrementAndGet();
+            }
+            bytes.addAndGet(size);
+            maxBytes.accumulateAndGet(size, Math::max);
+        }
+
+        AdvertisementStats toStats() {
+            long advertised = count.get();
+            return AdvertisementStats.builder()
+                    .transport(transport)
+                    .protocol(protocol)
+                    .advertisements(advertised)
+                    .refPrefixed(refPrefixed.get())
+                    .totalBytes(bytes.get())
+                    .maxBytes(maxBytes.get())
+                    .averageBytes(advertised == 0 ? 0.0 : (double) bytes.get() / advertised)
+                    .build();
+        }
+    }
+
+    /**
+     * Measures the ref advertisements within one upload-pack exchange from the bytes written
+     * between hook calls: the v0 ref list ends when negotiation begins, and a v2 ls-refs
+     * response ends with the next command or the exchange.
+     */
+    private final class AdvertisementMeter implements ProtocolV2Hook, PreUploadHook {
+        private final String transport;
+        private final CountingOutputStream out;
+        private String protocol;
+        private boolean prefixed;
+        private long start = -1;
+
+        private AdvertisementMeter(String transport, CountingOutputStream out) {
+            this.transport = transport;
+            this.out = out;
+        }
+
+        void begin(String protocolVersion, boolean refPrefixed) {
+            finish();
+            protocol = protocolVersion;
+            prefixed = refPrefixed;
+            start = out.getCount();
+        }
+
+        void finish() {
+            if (start >= 0) {
+                advertisement(transport, protocol).record(out.getCount() - start, prefixed);
+                start = -1;
+            }
+        }
+
+        @Override
+        public void onCapabilities(CapabilitiesV2Request req) {
+            finish();
+        }
+
+        @Override
+        public void onLsRefs(LsRefsV2Request req) {
+            begin("v2", !req.getRefPrefixes().isEmpty());
+        }
+
+        @Override
+        public void onFetch(FetchV2Request req) {
+            finish();
+        }
+
+        @Override
+        public void onObjectInfo(ObjectInfoRequest req) {
+            finish();
+        }
+
+        @Override
+        public void onBeginNegotiateRound(UploadPack up, Collection<? extends ObjectId> wants, int cntOffered) {
+            finish();
+        }
+
+        @Override
+        public void onEndNegotiateRound(UploadPack up, Collection<? extends ObjectId> wants, int cntCommon,
+                                        int cntNotFound, boolean ready) {
+        }
+
+        @Override
+        public void onSendPack(UploadPack up, Collection<? extends ObjectId> wants,
+                               Collection<? extends ObjectId> haves) {
+            finish();
+        }
+    }
+
+    /**
+     * Counts the bytes read from the client, and notes whether reading from it failed.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+        private boolean failed;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                int b = super.read();
+                if (b >= 0) {
+                    count++;
+                }
+                return b;
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    count += n;
+                }
+                return n;
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            try {
+                long skipped = super.skip(n);
+                count += skipped;
+                return skipped;
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Notes whether writing to the client failed, which means it hung up rather than that the
+     * repository could not be read.
+     */
+    private static final class ClientOutputStream extends FilterOutputStream {
+        private boolean failed;
+
+        private ClientOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            try {
+                out.write(b);
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                out.write(b, off, len);
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+    }
+}
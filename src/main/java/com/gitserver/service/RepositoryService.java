@@ -1,11 +1,15 @@
 package com.gitserver.service;
 
+import com.gitserver.cache.GitRepositoryCache;
+import com.gitserver.cache.RegisteredRepository;
+import com.gitserver.cache.RepositoryRegistry;
 import com.gitserver.config.GitServerConfig;
 import com.gitserver.dto.*;
 import com.gitserver.exception.GitOperationException;
 import com.gitserver.exception.RepositoryNotFoundException;
 import com.gitserver.model.Repository;
 import com.gitserver.repository.RepositoryJpaRepository;
+import com.gitserver.util.TransactionUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jgit.api.Git;
@@ -36,6 +40,8 @@ public class RepositoryService {
 
     private final GitServerConfig config;
     private final RepositoryJpaRepository repositoryJpaRepository;
+    private final GitRepositoryCache repositoryCache;
+    private final RepositoryRegistry repositoryRegistry;
 
     /**
      * Create a new repository.
@@ -69,9 +75,11 @@ public class RepositoryService {
             repo.setDefaultBranch(request.getDefaultBranch() != null ? request.getDefaultBranch() : "main");
             repo.setPrivate(request.isPrivate());
 
-            repo = repositoryJpaRepository.save(repo);
+            Repository saved = repositoryJpaRepository.save(repo);
+            // Resolve the repository only once its row is committed
+            TransactionUtil.afterCommit(() -> repositoryRegistry.register(saved));
 
-            return toRepositoryResponse(repo);
+            return toRepositoryResponse(saved);
         } catch (GitAPIException | IOException e) {
             throw new GitOperationException("Failed to create repository: " + e.getMessage(), e);
         }
@@ -114,6 +122,11 @@ public class RepositoryService {
 
         Path repoPath = config.getRepositoryPath(owner, name);
 
+        // Stop resolving the repository before its files go away, but bring it back if the delete rolls back
+        repositoryRegistry.unregister(owner, name);
+        TransactionUtil.afterRollback(() -> repositoryRegistry.register(repo));
+        repositoryCache.invalidate(repoPath);
+
         try {
             // Delete the Git repository files
             if (Files.exists(repoPath)) {
@@ -140,20 +153,19 @@ public class RepositoryService {
 
     /**
      * Get the Git repository for a given owner and name.
+     * <p>
+     * The returned handle is leased from the shared repository cache and must be closed.
      */
     public Git getGitRepository(String owner, String name) {
-        // Verify repository exists in database
-        if (!repositoryJpaRepository.existsByOwnerAndName(owner, name)) {
+        RegisteredRepository registered = repositoryRegistry.lookup(owner, name);
+        if (registered == null) {
             throw new RepositoryNotFoundException("Repository not found: " + owner + "/" + name);
         }
 
-        Path repoPath = config.getRepositoryPath(owner, name);
-        if (!Files.exists(repoPath)) {
-            throw new RepositoryNotFoundException("Repository files not found: " + owner + "/" + name);
-        }
-
         try {
-            return Git.open(repoPath.toFile());
+            return repositoryCache.acquire(registered.path());
+        } catch (org.eclipse.jgit.errors.RepositoryNotFoundException e) {
+            throw new RepositoryNotFoundException("Repository files not found: " + owner + "/" + name);
         } catch (IOException e) {
             throw new GitOperationException("Failed to open repository: " + e.getMessage(), e);
         }
@@ -168,7 +180,7 @@ public class RepositoryService {
                 .defaultBranch(repo.getDefaultBranch())
                 .isPrivate(repo.isPrivate())
                 .cloneUrl("http://localhost:8080/git/" + repo.getOwner() + "/" + repo.getName() + ".git")
-                .sshUrl("git@localhost:" + repo.getOwner() + "/" + repo.getName() + ".git")
+                .sshUrl("ssh://git@localhost:" + config.getSshPort() + "/" + repo.getOwner() + "/" + repo.getName() + ".git")
                 .createdAt(repo.getCreatedAt())
                 .updatedAt(repo.getUpdatedAt())
                 .build();
@@ -5,7 +5,9 @@ import com.gitserver.dto.SshKeyResponse;
 import com.gitserver.exception.GitOperationException;
 import com.gitserver.model.SshKey;
 import com.gitserver.repository.SshKeyRepository;
+import com.gitserver.ssh.SshKeyAuthenticator;
 import com.gitserver.util.SshKeyUtil;
+import com.gitserver.util.TransactionUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -22,6 +24,7 @@ import java.util.List;
 public class SshKeyService {
 
     private final SshKeyRepository sshKeyRepository;
+    private final SshKeyAuthenticator keyAuthenticator;
 
     /**
      * Add a new SSH key.
@@ -48,11 +51,13 @@ public class SshKeyService {
         sshKey.setPublicKey(request.getPublicKey());
         sshKey.setFingerprint(fingerprint);
 
-        sshKey = sshKeyRepository.save(sshKey);
+        SshKey saved = sshKeyRepository.save(sshKey);
+        // Only a committed key may authenticate
+        TransactionUtil.afterCommit(() -> keyAuthenticator.add(saved));
 
         log.info("Added SSH key '{}' for user '{}'", request.getTitle(), request.getUsername());
 
-        return toSshKeyResponse(sshKey);
+        return toSshKeyResponse(saved);
     }
 
     /**
@@ -82,6 +87,9 @@ public class SshKeyService {
                 .orElseThrow(() -> new GitOperationException("SSH key not found: " + id));
 
         sshKeyRepository.delete(sshKey);
+        // Stop accepting the key right away, but restore it if the delete is rolled back
+        keyAuthenticator.remove(sshKey);
+        TransactionUtil.afterRollback(() -> keyAuthenticator.add(sshKey));
 
         log.info("Deleted SSH key '{}' for user '{}'", sshKey.getTitle(), sshKey.getUsername());
     }
@@ -99,6 +107,9 @@ public class SshKeyService {
         }
 
         sshKeyRepository.delete(sshKey);
+        // Stop accepting the key right away, but restore it if the delete is rolled back
+        keyAuthenticator.remove(sshKey);
+        TransactionUtil.afterRollback(() -> keyAuthenticator.add(sshKey));
 
         log.info("Deleted SSH key '{}' for user '{}'", sshKey.getTitle(), username);
     }
@@ -1,14 +1,22 @@
 package com.gitserver.service;
 
+import com.gitserver.cache.CommitCache;
+import com.gitserver.cache.RefResolutionCache;
 import com.gitserver.dto.CreateTagRequest;
 import com.gitserver.dto.TagInfo;
+import com.gitserver.dto.TagPage;
 import com.gitserver.exception.GitOperationException;
+import com.gitserver.util.ETagUtil;
+import com.gitserver.util.VersionSortUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevObject;
@@ -17,7 +25,11 @@ import org.eclipse.jgit.revwalk.RevWalk;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -29,29 +41,97 @@ import java.util.List;
 public class TagService {
 
     private final RepositoryService repositoryService;
+    private final RefResolutionCache refCache;
+    private final CommitCache commitCache;
 
     /**
      * List all tags in a repository.
      */
     public List<TagInfo> listTags(String owner, String repoName) {
-        try (Git git = repositoryService.getGitRepository(owner, repoName)) {
-            Repository repository = git.getRepository();
-            List<TagInfo> tags = new ArrayList<>();
+        return getTagPage(owner, repoName, null, "name", Integer.MAX_VALUE, null, true).getTags();
+    }
 
-            List<Ref> refs = git.tagList().call();
+    /**
+     * Get one page of tags, continuing after the cursor returned with the previous page.
+     * <p>
+     * Only refs under the prefix are read, and sorting needs nothing but their names: the
+     * {@code version} order (highest first) compares keys precomputed once per tag. Target commits
+     * come from the peeled IDs the ref database already holds (from {@code packed-refs}), so without
+     * details no tag object is parsed at all, and with details only the page's own tags are.
+     */
+    public TagPage getTagPage(String owner, String repoName, String prefix, String sort, int limit,
+                              String cursor, boolean details) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        TagSort order = TagSort.parse(sort);
+        String repoKey = owner + "/" + repoName;
+
+        try (Git git = repositoryService.getGitRepository(owner, repoName);
+             RevWalk revWalk = new RevWalk(git.getRepository())) {
+            RefDatabase refDatabase = git.getRepository().getRefDatabase();
+            List<Ref> refs = refDatabase.getRefsByPrefix(Constants.R_TAGS + (prefix != null ? prefix : ""));
+
+            List<TagEntry> entries = new ArrayList<>(refs.size());
             for (Ref ref : refs) {
-                TagInfo tagInfo = createTagInfo(repository, ref);
+                if (ref.getObjectId() != null) {
+                    entries.add(TagEntry.of(ref.getName().substring(Constants.R_TAGS.length()), ref));
+                }
+            }
+            entries.sort(order.comparator);
+
+            int from = 0;
+            if (cursor != null) {
+                int index = Collections.binarySearch(entries, TagEntry.of(decodeCursor(cursor), null), order.comparator);
+                from = index >= 0 ? index + 1 : -index - 1;
+            }
+            int to = (int) Math.min((long) from + limit, entries.size());
+
+            List<TagInfo> tags = new ArrayList<>(Math.max(to - from, 0));
+            for (TagEntry entry : entries.subList(from, to)) {
+                Ref ref = entry.ref().isPeeled() ? entry.ref() : refDatabase.peel(entry.ref());
+                TagInfo tagInfo = details ? createTagInfo(repoKey, revWalk, ref) : summaryTagInfo(entry.name(), ref);
                 if (tagInfo != null) {
                     tags.add(tagInfo);
                 }
             }
 
-            return tags;
-        } catch (GitAPIException e) {
+            return TagPage.builder()
+                    .tags(tags)
+                    .nextCursor(to < entries.size() ? encodeCursor(entries.get(to - 1).name()) : null)
+                    .build();
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to list tags: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get an entity tag for the tag listing, computed from the refs alone.
+     */
+    public String getTagsETag(String owner, String repoName) {
+        try (Git git = repositoryService.getGitRepository(owner, repoName)) {
+            List<Ref> refs = git.getRepository().getRefDatabase().getRefsByPrefix(Constants.R_TAGS);
+            return ETagUtil.fromRefs(null, refs);
+        } catch (IOException e) {
             throw new GitOperationException("Failed to list tags: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Get an entity tag for a single tag, computed from its ref alone.
+     */
+    public String getTagETag(String owner, String repoName, String tagName) {
+        try (Git git = repositoryService.getGitRepository(owner, repoName)) {
+            Ref ref = git.getRepository().findRef("refs/tags/" + tagName);
+            if (ref == null) {
+                throw new GitOperationException("Tag not found: " + tagName);
+            }
+            return ETagUtil.fromRefs(null, List.of(ref));
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to get tag: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Get information about a specific tag.
      */
@@ -64,7 +144,10 @@ public class TagService {
                 throw new GitOperationException("Tag not found: " + tagName);
             }
 
-            TagInfo tagInfo = createTagInfo(repository, ref);
+            TagInfo tagInfo;
+            try (RevWalk revWalk = new RevWalk(repository)) {
+                tagInfo = createTagInfo(owner + "/" + repoName, revWalk, ref);
+            }
             if (tagInfo == null) {
                 throw new GitOperationException("Failed to parse tag: " + tagName);
             }
@@ -97,27 +180,32 @@ public class TagService {
                 }
             }
 
-            Ref tagRef;
-            if (request.isAnnotated()) {
-                // Create annotated tag
-                tagRef = git.tag()
-                        .setName(request.getTagName())
-                        .setMessage(request.getMessage())
-                        .setObjectId(new RevWalk(repository).parseCommit(commitId))
-                        .call();
-            } else {
-                // Create lightweight tag
-                tagRef = git.tag()
-                        .setName(request.getTagName())
-                        .setAnnotated(false)
-                        .setObjectId(new RevWalk(repository).parseCommit(commitId))
-                        .call();
-            }
+            try (RevWalk revWalk = new RevWalk(repository)) {
+                RevCommit commit = revWalk.parseCommit(commitId);
+                Ref tagRef;
+                if (request.isAnnotated()) {
+                    // Create annotated tag
+                    tagRef = git.tag()
+                            .setName(request.getTagName())
+                            .setMessage(request.getMessage())
+                            .setObjectId(commit)
+                            .call();
+                } else {
+                    // Create lightweight tag
+                    tagRef = git.tag()
+                            .setName(request.getTagName())
+                            .setAnnotated(false)
+                            .setObjectId(commit)
+                            .call();
+                }
+
+                refCache.invalidate(repository);
 
-            log.info("Created tag '{}' at commit {} in {}/{}", 
-                    request.getTagName(), commitId.getName(), owner, repoName);
+                log.info("Created tag '{}' at commit {} in {}/{}",
+                        request.getTagName(), commitId.getName(), owner, repoName);
 
-            return createTagInfo(repository, tagRef);
+                return createTagInfo(owner + "/" + repoName, revWalk, tagRef);
+            }
         } catch (GitAPIException | IOException e) {
             throw new GitOperationException("Failed to create tag: " + e.getMessage(), e);
         }
@@ -138,6 +226,7 @@ public class TagService {
             git.tagDelete()
                     .setTags(tagName)
                     .call();
+            refCache.invalidate(repository);
 
             log.info("Deleted tag '{}' from {}/{}", tagName, owner, repoName);
         } catch (GitAPIException | IOException e) {
@@ -145,47 +234,46 @@ public class TagService {
         }
     }
 
-    private TagInfo createTagInfo(Repository repository, Ref ref) {
+    private TagInfo createTagInfo(String repoKey, RevWalk revWalk, Ref ref) {
         String tagName = ref.getName();
         if (tagName.startsWith("refs/tags/")) {
             tagName = tagName.substring("refs/tags/".length());
         }
 
-        try (RevWalk revWalk = new RevWalk(repository)) {
-            ObjectId objectId = ref.getPeeledObjectId();
-            if (objectId == null) {
-                objectId = ref.getObjectId();
+        try {
+            if (ref.getObjectId() == null) {
+                return null;
             }
 
-            if (objectId == null) {
-                return null;
+            // A peeled ref without a peeled ID is a lightweight tag pointing straight at a commit
+            if (ref.isPeeled() && ref.getPeeledObjectId() == null) {
+                return lightweightTagInfo(tagName, commitCache.load(repoKey, revWalk, ref.getObjectId()));
+            }
+
+            // Lightweight tags point straight at a commit that may already be cached
+            CommitCache.CachedCommit cached = commitCache.get(repoKey, ref.getObjectId());
+            if (cached != null) {
+                return lightweightTagInfo(tagName, cached);
             }
 
             RevObject revObject = revWalk.parseAny(ref.getObjectId());
 
             if (revObject instanceof RevTag revTag) {
-                // Annotated tag
-                RevCommit commit = revWalk.parseCommit(revTag.getObject());
+                // Annotated tag; the tagged commit itself is never needed, only its ID
+                ObjectId target = ref.getPeeledObjectId() != null ? ref.getPeeledObjectId() : revWalk.peel(revTag);
+                PersonIdent tagger = revTag.getTaggerIdent();
                 return TagInfo.builder()
                         .name(tagName)
-                        .commitId(commit.getName())
+                        .commitId(target.getName())
                         .message(revTag.getFullMessage())
-                        .tagger(revTag.getTaggerIdent() != null ? revTag.getTaggerIdent().getName() : null)
-                        .taggerEmail(revTag.getTaggerIdent() != null ? revTag.getTaggerIdent().getEmailAddress() : null)
-                        .tagTime(revTag.getTaggerIdent() != null ? revTag.getTaggerIdent().getWhen().getTime() : 0)
+                        .tagger(tagger != null ? tagger.getName() : null)
+                        .taggerEmail(tagger != null ? tagger.getEmailAddress() : null)
+                        .tagTime(tagger != null ? tagger.getWhen().getTime() : null)
                         .isAnnotated(true)
                         .build();
-            } else if (revObject instanceof RevCommit commit) {
+            } else if (revObject instanceof RevCommit) {
                 // Lightweight tag
-                return TagInfo.builder()
-                        .name(tagName)
-                        .commitId(commit.getName())
-                        .message(null)
-                        .tagger(null)
-                        .taggerEmail(null)
-                        .tagTime(commit.getCommitTime() * 1000L)
-                        .isAnnotated(false)
-                        .build();
+                return lightweightTagInfo(tagName, commitCache.load(repoKey, revWalk, revObject));
             }
 
             return null;
@@ -194,4 +282,72 @@ public class TagService {
             return null;
         }
     }
+
+    /**
+     * Build tag information from a peeled ref alone, without reading any object.
+     */
+    private static TagInfo summaryTagInfo(String tagName, Ref ref) {
+        ObjectId peeled = ref.getPeeledObjectId();
+        return TagInfo.builder()
+                .name(tagName)
+                .commitId(peeled != null ? peeled.getName() : ref.getObjectId().getName())
+                .isAnnotated(peeled != null)
+                .build();
+    }
+
+    private static TagInfo lightweightTagInfo(String tagName, CommitCache.CachedCommit commit) {
+        return TagInfo.builder()
+                .name(tagName)
+                .commitId(commit.getName())
+                .message(null)
+                .tagger(null)
+                .taggerEmail(null)
+                .tagTime(commit.committerTime())
+                .isAnnotated(false)
+                .build();
+    }
+
+    private static String encodeCursor(String tagName) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(tagName.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    /**
+     * A tag ref with its precomputed version sort key; cursors decode to an entry without a ref.
+     */
+    private record TagEntry(String name, String versionKey, Ref ref) {
+
+        static TagEntry of(String name, Ref ref) {
+            return new TagEntry(name, VersionSortUtil.sortKey(name), ref);
+        }
+    }
+
+    private enum TagSort {
+        NAME(Comparator.comparing(TagEntry::name)),
+        VERSION(Comparator.comparing(TagEntry::versionKey).reversed()
+                .thenComparing(TagEntry::name));
+
+        private final Comparator<TagEntry> comparator;
+
+        TagSort(Comparator<TagEntry> comparator) {
+            this.comparator = comparator;
+        }
+
+        static TagSort parse(String sort) {
+            if (sort == null || sort.equals("name")) {
+                return NAME;
+            }
+            if (sort.equals("version")) {
+                return VERSION;
+            }
+            throw new IllegalArgumentException("Unknown sort: " + sort + " (expected name or version)");
+        }
+    }
 }
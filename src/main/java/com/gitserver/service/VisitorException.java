@@ -0,0 +1,35 @@
+package com.gitserver.service;
+
+import java.io.IOException;
+
+/**
+ * Carries an IOException thrown by a walk's visitor, typically because the client it writes to
+ * went away, past the walk's own repository error handling.
+ */
+final class VisitorException extends RuntimeException {
+
+    private VisitorException(IOException cause) {
+        super(cause);
+    }
+
+    /**
+     * Run a visitor callback, wrapping the IOException it throws.
+     */
+    static void visit(Callback callback) {
+        try {
+            callback.run();
+        } catch (IOException e) {
+            throw new VisitorException(e);
+        }
+    }
+
+    @Override
+    public synchronized IOException getCause() {
+        return (IOException) super.getCause();
+    }
+
+    @FunctionalInterface
+    interface Callback {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,117 @@
+package com.gitserver.ssh;
+
+import com.gitserver.cache.RegisteredRepository;
+import com.gitserver.cache.RepositoryRegistry;
+import com.gitserver.service.GitTransportService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.sshd.common.util.threads.CloseableExecutorService;
+import org.apache.sshd.server.command.AbstractCommandSupport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One {@code git-upload-pack} or {@code git-receive-pack} exec request, run on the shared
+ * command pool against the repository named by its path argument.
+ * <p>
+ * The user whose key authenticated the session may fetch public repositories and their own
+ * private ones, and push only to their own repositories.
+ */
+@Slf4j
+class GitSshCommand extends AbstractCommandSupport {
+
+    private static final String GIT_PROTOCOL_ENV = "GIT_PROTOCOL";
+
+    private final GitTransportService transportService;
+    private final RepositoryRegistry repositoryRegistry;
+    private final String service;
+    private final String path;
+
+    GitSshCommand(String command, CloseableExecutorService executor, GitTransportService transportService,
+                  RepositoryRegistry repositoryRegistry, String service, String path) {
+        super(command, executor);
+        this.transportService = transportService;
+        this.repositoryRegistry = repositoryRegistry;
+        this.service = service;
+        this.path = path;
+    }
+
+    @Override
+    public void run() {
+        try {
+            String[] ownerAndName = ownerAndName(path);
+            String owner = ownerAndName[0];
+            String name = ownerAndName[1];
+            String denied = checkAccess(owner, name, getServerSession().getAttribute(SshKeyAuthenticator.USERNAME));
+            if (denied != null) {
+                fatal(denied);
+                return;
+            }
+            if (GitTransportService.UPLOAD_PACK.equals(service)) {
+                String protocol = getEnvironment().getEnv().get(GIT_PROTOCOL_ENV);
+                transportService.uploadPack(owner, name, "ssh", protocol, false,
+                        getInputStream(), getOutputStream(), getErrorStream());
+            } else {
+                transportService.receivePack(owner, name, "ssh", false,
+                        getInputStream(), getOutputStream(), getErrorStream());
+            }
+            getOutputStream().flush();
+            onExit(0);
+        } catch (IOException | RuntimeException e) {
+            log.debug("{} failed for {}: {}", service, path, e.getMessage());
+            fatal(e.getMessage());
+        }
+    }
+
+    /**
+     * Get why the user may not run this command on a repository, or {@code null} if they may.
+     */
+    private String checkAccess(String owner, String name, String username) {
+        RegisteredRepository repository = repositoryRegistry.lookup(owner, name);
+        boolean isOwner = owner.equals(username);
+        if (repository == null || (repository.isPrivate() && !isOwner)) {
+            // Private repositories of others are reported as missing, not as forbidden
+            return "Repository not found: " + owner + "/" + name;
+        }
+        if (GitTransportService.RECEIVE_PACK.equals(service) && !isOwner) {
+            return "Permission to " + owner + "/" + name + " denied to " + username;
+        }
+        return null;
+    }
+
+    /**
+     * Resolve {@code /owner/name.git}, {@code owner/name.git} or {@code ~/owner/name} to its parts.
+     */
+    static String[] ownerAndName(String path) {
+        String trimmed = path;
+        if (trimmed.startsWith("~/")) {
+            trimmed = trimmed.substring(2);
+        }
+        while (trimmed.startsWith("/")) {
+            trimmed = trimmed.substring(1);
+        }
+        if (trimmed.endsWith("/")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        if (trimmed.endsWith(".git")) {
+            trimmed = trimmed.substring(0, trimmed.length() - ".git".length());
+        }
+        String[] parts = trimmed.split("/");
+        if (parts.length != 2 || parts[0].isEmpty() || parts[1].isEmpty()) {
+            throw new IllegalArgumentException("'" + path + "' does not appear to be a git repository");
+        }
+        return parts;
+    }
+
+    private void fatal(String message) {
+        try {
+            OutputStream err = getErrorStream();
+            err.write(("fatal: " + message + "\n").getBytes(StandardCharsets.UTF_8));
+            err.flush();
+        } catch (IOException e) {
+            // The client has gone away
+        }
+        onExit(128, message);
+    }
+}
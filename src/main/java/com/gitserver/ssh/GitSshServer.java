@@ -0,0 +1,121 @@
+package com.gitserver.ssh;
+
+import com.gitserver.cache.RepositoryRegistry;
+import com.gitserver.config.GitServerConfig;
+import com.gitserver.service.GitTransportService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.sshd.common.io.nio2.Nio2ServiceFactoryFactory;
+import org.apache.sshd.common.util.threads.CloseableExecutorService;
+import org.apache.sshd.common.util.threads.ThreadUtils;
+import org.apache.sshd.core.CoreModuleProperties;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.command.Command;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.server.shell.UnknownCommand;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Embedded SSH server serving clone, fetch and push at the repositories' {@code sshUrl}s.
+ * <p>
+ * Only public key authentication and the {@code git-upload-pack} / {@code git-receive-pack}
+ * exec requests are accepted; there is no shell, SFTP or forwarding. Pushing is limited to
+ * the repository owner's keys and private repositories are only served to their owner.
+ * Socket I/O runs on a fixed number of NIO2 workers and the Git commands themselves, which
+ * block while packs are read or written, on a separate fixed pool, so neither grows with
+ * the session count.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class GitSshServer {
+
+    private final GitServerConfig config;
+    private final SshKeyAuthenticator keyAuthenticator;
+    private final GitTransportService transportService;
+    private final RepositoryRegistry repositoryRegistry;
+
+    private SshServer server;
+    private CloseableExecutorService commandExecutor;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!config.isSshEnabled()) {
+            return;
+        }
+        Path hostKey = Paths.get(config.getSshHostKeyPath()).toAbsolutePath();
+        Files.createDirectories(hostKey.getParent());
+
+        commandExecutor = ThreadUtils.newFixedThreadPool("git-ssh-command", config.getSshCommandThreads());
+        server = SshServer.setUpDefaultServer();
+        server.setPort(config.getSshPort());
+        server.setKeyPairProvider(new SimpleGeneratorHostKeyProvider(hostKey));
+        server.setPublickeyAuthenticator(keyAuthenticator);
+        server.setPasswordAuthenticator(null);
+        server.setKeyboardInteractiveAuthenticator(null);
+        server.setIoServiceFactoryFactory(new Nio2ServiceFactoryFactory());
+        CoreModuleProperties.NIO_WORKERS.set(server, config.getSshNioWorkers());
+        server.setCommandFactory((channel, command) -> createCommand(command));
+        server.start();
+        log.info("SSH server listening on port {}", getPort());
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (server != null) {
+            server.stop(true);
+            server = null;
+        }
+        if (commandExecutor != null) {
+            commandExecutor.shutdownNow();
+            commandExecutor = null;
+        }
+    }
+
+    /**
+     * The port the server is bound to, or {@code -1} if it is not running.
+     */
+    public int getPort() {
+        if (server == null) {
+            return -1;
+        }
+        for (SocketAddress address : server.getBoundAddresses()) {
+            if (address instanceof InetSocketAddress inetAddress) {
+                return inetAddress.getPort();
+            }
+        }
+        return server.getPort();
+    }
+
+    private Command createCommand(String commandLine) {
+        int space = commandLine.indexOf(' ');
+        String service = space < 0 ? commandLine : commandLine.substring(0, space);
+        if (space < 0 || (!GitTransportService.UPLOAD_PACK.equals(service)
+                && !GitTransportService.RECEIVE_PACK.equals(service))) {
+            return new UnknownCommand(commandLine);
+        }
+        String path = unquote(commandLine.substring(space + 1).trim());
+        // The shared pool must survive the command's destroy()
+        return new GitSshCommand(commandLine, ThreadUtils.noClose(commandExecutor), transportService,
+                repositoryRegistry, service, path);
+    }
+
+    /**
+     * Strip the single quotes Git puts around the path argument.
+     */
+    private static String unquote(String argument) {
+        if (argument.length() >= 2 && argument.startsWith("'") && argument.endsWith("'")) {
+            return argument.substring(1, argument.length() - 1).replace("'\\''", "'");
+        }
+        return argument;
+    }
+}
@@ -0,0 +1,106 @@
+package com.gitserver.ssh;
+
+import com.gitserver.model.SshKey;
+import com.gitserver.repository.SshKeyRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.sshd.common.AttributeRepository.AttributeKey;
+import org.apache.sshd.common.config.keys.AuthorizedKeyEntry;
+import org.apache.sshd.common.config.keys.KeyUtils;
+import org.apache.sshd.common.config.keys.PublicKeyEntryResolver;
+import org.apache.sshd.server.auth.pubkey.PublickeyAuthenticator;
+import org.apache.sshd.server.session.ServerSession;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Public key authenticator backed by an in-memory index of the registered SSH keys.
+ * <p>
+ * Keys are decoded once and indexed by their SHA256 fingerprint, so a handshake costs one
+ * digest and one map lookup instead of a database query. The index is loaded at startup
+ * and kept current by {@link com.gitserver.service.SshKeyService} as keys are added and deleted.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SshKeyAuthenticator implements PublickeyAuthenticator {
+
+    /**
+     * Session attribute holding the user whose key authenticated the session.
+     */
+    public static final AttributeKey<String> USERNAME = new AttributeKey<>();
+
+    private final SshKeyRepository sshKeyRepository;
+
+    private final ConcurrentMap<String, AuthorizedKey> keys = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * Rebuild the index from the database.
+     */
+    public void reload() {
+        Map<String, AuthorizedKey> loaded = new HashMap<>();
+        for (SshKey sshKey : sshKeyRepository.findAll()) {
+            AuthorizedKey key = decode(sshKey);
+            if (key != null) {
+                loaded.put(sshKey.getFingerprint(), key);
+            }
+        }
+        keys.putAll(loaded);
+        keys.keySet().retainAll(loaded.keySet());
+        log.info("Loaded {} SSH keys", loaded.size());
+    }
+
+    public void add(SshKey sshKey) {
+        AuthorizedKey key = decode(sshKey);
+        if (key != null) {
+            keys.put(sshKey.getFingerprint(), key);
+        }
+    }
+
+    public void remove(SshKey sshKey) {
+        keys.remove(sshKey.getFingerprint());
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    @Override
+    public boolean authenticate(String username, PublicKey key, ServerSession session) {
+        AuthorizedKey authorized = keys.get(KeyUtils.getFingerPrint(key));
+        if (authorized == null || !KeyUtils.compareKeys(authorized.publicKey(), key)) {
+            return false;
+        }
+        session.setAttribute(USERNAME, authorized.username());
+        return true;
+    }
+
+    private static AuthorizedKey decode(SshKey sshKey) {
+        try {
+            PublicKey publicKey = AuthorizedKeyEntry.parseAuthorizedKeyEntry(sshKey.getPublicKey())
+                    .resolvePublicKey(null, PublicKeyEntryResolver.FAILING);
+            return new AuthorizedKey(sshKey.getUsername(), publicKey);
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            // Stored keys were only checked for their type prefix, not decoded
+            log.warn("Ignoring undecodable SSH key {} of user '{}': {}", sshKey.getId(), sshKey.getUsername(),
+                    e.getMessage());
+            return null;
+        }
+    }
+
+    private record AuthorizedKey(String username, PublicKey publicKey) {
+    }
+}
@@ -0,0 +1,85 @@
+package com.gitserver.util;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+
+/**
+ * Utility class for building HTTP entity tags from Git object and ref state.
+ */
+public final class ETagUtil {
+
+    private ETagUtil() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Build a strong entity tag for a resource fully determined by an immutable object.
+     *
+     * @param objectId the commit, tree or blob the resource was rendered from
+     * @return the quoted entity tag
+     */
+    public static String fromObjectId(ObjectId objectId) {
+        return "\"" + objectId.getName() + "\"";
+    }
+
+    /**
+     * Build a strong entity tag for a resource fully determined by a pair of immutable objects.
+     *
+     * @param first the first object, e.g. the base of a comparison
+     * @param second the second object, e.g. the head of a comparison
+     * @return the quoted entity tag
+     */
+    public static String fromObjectIds(ObjectId first, ObjectId second) {
+        return "\"" + first.getName() + "." + second.getName() + "\"";
+    }
+
+    /**
+     * Derive the entity tag of another representation of the same resource, such as a
+     * different media type, so validators of one never match the other.
+     *
+     * @param etag the quoted entity tag of the resource
+     * @param variant a short name for the representation, e.g. {@code ndjson}
+     * @return the quoted entity tag
+     */
+    public static String withVariant(String etag, String variant) {
+        return etag.substring(0, etag.length() - 1) + "-" + variant + "\"";
+    }
+
+    /**
+     * Build a strong entity tag from the state of a set of refs.
+     *
+     * @param context extra state the representation depends on (e.g. the default branch), may be null
+     * @param refs the refs the representation was rendered from
+     * @return the quoted entity tag
+     */
+    public static String fromRefs(String context, Collection<Ref> refs) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            if (context != null) {
+                digest.update(context.getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 0);
+
+            byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+            for (Ref ref : refs) {
+                digest.update(ref.getName().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                if (ref.getObjectId() != null) {
+                    ref.getObjectId().copyRawTo(rawId, 0);
+                    digest.update(rawId);
+                }
+            }
+
+            return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 20) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 algorithm not available", e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.gitserver.util;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Utility class for ordering tag names as versions.
+ */
+public final class VersionSortUtil {
+
+    // An optional "v", dot-separated numbers, then anything (usually a pre-release or build suffix)
+    private static final Pattern VERSION = Pattern.compile("^[vV]?(\\d+(?:\\.\\d+)*)(.*)$");
+
+    // Separators and markers are chosen so that plain string comparison of keys orders
+    // "1.2-rc1" < "1.2" < "1.2.1" < "1.10"
+    private static final char COMPONENT_SEPARATOR = '.';
+    private static final char PRE_RELEASE = '!';
+    private static final char RELEASE = '#';
+    private static final String NOT_A_VERSION = "";
+
+    private VersionSortUtil() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Build a key whose natural string order is the version order of the names it was built from.
+     * <p>
+     * Numbers are compared by value, so {@code v1.10} sorts after {@code v1.9}, and a version with a
+     * suffix such as {@code -rc.1} sorts before the same version without one. Names that do not start
+     * with a version all get the same, lowest key. Computing the key once per tag keeps sorting a
+     * large listing to plain string comparisons.
+     *
+     * @param name the tag name
+     * @return the sort key
+     */
+    public static String sortKey(String name) {
+        Matcher matcher = VERSION.matcher(name);
+        if (!matcher.matches()) {
+            return NOT_A_VERSION;
+        }
+
+        StringBuilder key = new StringBuilder(name.length() + 8);
+        String[] components = matcher.group(1).split("\\.");
+        for (int i = 0; i < components.length; i++) {
+            if (i > 0) {
+                key.append(COMPONENT_SEPARATOR);
+            }
+            appendNumber(key, components[i]);
+        }
+
+        String suffix = matcher.group(2);
+        if (suffix.isEmpty() || suffix.charAt(0) == '+') {
+            // Build metadata does not make a pre-release
+            return key.append(RELEASE).toString();
+        }
+        key.append(PRE_RELEASE);
+        int i = 0;
+        while (i < suffix.length()) {
+            int end = i;
+            while (end < suffix.length() && Character.isDigit(suffix.charAt(end))) {
+                end++;
+            }
+            if (end > i) {
+                appendNumber(key, suffix.substring(i, end));
+                i = end;
+            } else {
+                key.append(suffix.charAt(i++));
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Append a number prefixed by its length, so longer numbers compare as larger.
+     */
+    private static void appendNumber(StringBuilder key, String digits) {
+        int start = 0;
+        while (start < digits.length() - 1 && digits.charAt(start) == '0') {
+            start++;
+        }
+        int length = digits.length() - start;
+        key.append((char) ('A' + Math.min(length, 'Z' - 'A'))).append(digits, start, digits.length());
+    }
+}
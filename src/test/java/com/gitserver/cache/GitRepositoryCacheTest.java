@@ -0,0 +1,82 @@
+package com.gitserver.cache;
+
+import com.gitserver.config.GitServerConfig;
+import com.gitserver.dto.CreateRepositoryRequest;
+import com.gitserver.dto.RepositoryCacheStats;
+import com.gitserver.repository.RepositoryJpaRepository;
+import com.gitserver.service.RepositoryService;
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+    "git.server.repositories.base-path=${java.io.tmpdir}/test-repos",
+    "git.server.ssh-keys.base-path=${java.io.tmpdir}/test-ssh-keys"
+})
+class GitRepositoryCacheTest {
+
+    @Autowired
+    private GitRepositoryCache repositoryCache;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private RepositoryJpaRepository repositoryJpaRepository;
+
+    @Autowired
+    private GitServerConfig config;
+
+    @BeforeEach
+    void setUp() {
+        repositoryJpaRepository.deleteAll();
+        repositoryCache.close();
+    }
+
+    @Test
+    void testAcquireReusesOpenRepository() throws Exception {
+        createRepository("cache-reuse-repo");
+        RepositoryCacheStats before = repositoryCache.getStats();
+
+        try (Git first = repositoryService.getGitRepository("testuser", "cache-reuse-repo");
+             Git second = repositoryService.getGitRepository("testuser", "cache-reuse-repo")) {
+            assertSame(first.getRepository(), second.getRepository());
+            assertEquals(before.getOpenHandles() + 2, repositoryCache.getStats().getOpenHandles());
+        }
+
+        RepositoryCacheStats after = repositoryCache.getStats();
+        assertEquals(before.getMisses() + 1, after.getMisses());
+        assertEquals(before.getHits() + 1, after.getHits());
+        assertEquals(before.getOpenHandles(), after.getOpenHandles());
+    }
+
+    @Test
+    void testInvalidateDropsRepository() throws Exception {
+        createRepository("cache-invalidate-repo");
+        Path repoPath = config.getRepositoryPath("testuser", "cache-invalidate-repo");
+
+        Git leased = repositoryCache.acquire(repoPath);
+        repositoryCache.invalidate(repoPath);
+
+        try (Git reopened = repositoryCache.acquire(repoPath)) {
+            assertNotSame(leased.getRepository(), reopened.getRepository());
+        } finally {
+            leased.close();
+        }
+    }
+
+    private void createRepository(String name) {
+        CreateRepositoryRequest request = new CreateRepositoryRequest();
+        request.setName(name);
+        request.setOwner("testuser");
+        repositoryService.createRepository(request);
+    }
+}
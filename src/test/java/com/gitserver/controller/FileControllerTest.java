@@ -0,0 +1,342 @@
+package com.gitserver.controller;
+
+import com.gitserver.dto.CreateRepositoryRequest;
+import com.gitserver.repository.RepositoryJpaRepository;
+import com.gitserver.service.RepositoryService;
+import com.gitserver.support.GitTestSupport;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.net.URI;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+    "git.server.repositories.base-path=${java.io.tmpdir}/test-repos",
+    "git.server.ssh-keys.base-path=${java.io.tmpdir}/test-ssh-keys",
+    "git.server.contents.stream-threshold=8B",
+    "git.server.contents.max-inline-size=64B"
+})
+class FileControllerTest {
+
+    private static final String OWNER = "controlleruser";
+    private static final String REPO = "controller-test-repo";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private RepositoryJpaRepository repositoryJpaRepository;
+
+    private ObjectId head;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        repositoryJpaRepository.findByOwnerAndName(OWNER, REPO)
+                .ifPresent(repo -> repositoryService.deleteRepository(OWNER, REPO));
+
+        CreateRepositoryRequest request = new CreateRepositoryRequest();
+        request.setName(REPO);
+        request.setOwner(OWNER);
+        repositoryService.createRepository(request);
+
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            head = GitTestSupport.commit(git.getRepository(), "main", Map.of("README.md", "hello", "data.txt", "0123456789"), "Initial commit");
+        }
+    }
+
+    @Test
+    void testTreeReturnsNotModifiedForMatchingETag() throws Exception {
+        String etag = "\"" + head.getName() + "\"";
+
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/tree/main", OWNER, REPO))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(header().string("Cache-Control", "no-cache"));
+
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/tree/main", OWNER, REPO).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void testRecursiveTreeRepresentationsHaveOwnETags() throws Exception {
+        String etag = "\"" + head.getName() + "\"";
+        String ndjsonETag = "\"" + head.getName() + "-ndjson\"";
+
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/tree/main", OWNER, REPO).param("recursive", "true"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(header().string("Vary", containsString("Accept")));
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/tree/main", OWNER, REPO)
+                        .param("recursive", "true").accept("application/x-ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", ndjsonETag))
+                .andExpect(header().string("Vary", containsString("Accept")));
+
+        // A validator of one representation must not revalidate the other
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/tree/main", OWNER, REPO)
+                        .param("recursive", "true").accept("application/x-ndjson").header("If-None-Match", etag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/tree/main", OWNER, REPO)
+                        .param("recursive", "true").accept("application/x-ndjson").header("If-None-Match", ndjsonETag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("Vary", containsString("Accept")));
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/tree/main", OWNER, REPO)
+                        .param("recursive", "true").header("If-None-Match", ndjsonETag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testContentEncodingDependsOnSize() throws Exception {
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/contents/main/README.md", OWNER, REPO))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.encoding").value("utf-8"))
+                .andExpect(jsonPath("$.content").value("hello"));
+
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/contents/main/data.txt", OWNER, REPO))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.encoding").value("base64"))
+                .andExpect(jsonPath("$.size").value(10))
+                .andExpect(jsonPath("$.content").value("MDEyMzQ1Njc4OQ=="));
+
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            GitTestSupport.commit(git.getRepository(), "main", Map.of("big.txt", "x".repeat(100)), "Add big file");
+        }
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/contents/main/big.txt", OWNER, REPO))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.encoding").value("none"))
+                .andExpect(jsonPath("$.content").doesNotExist())
+                .andExpect(jsonPath("$.downloadUrl").value("/api/repos/" + OWNER + "/" + REPO + "/raw/main/big.txt"));
+    }
+
+    @Test
+    void testDownloadUrlIsEncoded() throws Exception {
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            GitTestSupport.commit(git.getRepository(), "main", Map.of("docs/big file#1.txt", "x".repeat(100)), "Add big file");
+        }
+        String downloadUrl = "/api/repos/" + OWNER + "/" + REPO + "/raw/main/docs/big%20file%231.txt";
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/contents/main/docs/{name}", OWNER, REPO, "big file#1.txt"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.downloadUrl").value(downloadUrl));
+
+        mockMvc.perform(get(URI.create(downloadUrl)))
+                .andExpect(status().isOk())
+                .andExpect(content().string("x".repeat(100)));
+    }
+
+    @Test
+    void testRecursiveTreeNestsChildrenAndTruncates() throws Exception {
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            GitTestSupport.commit(git.getRepository(), "main",
+                    Map.of("README.md", "hello", "src/a/A.java", "a", "src/B.java", "b"), "Add sources");
+        }
+
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/tree/main", OWNER, REPO).param("recursive", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(5))
+                .andExpect(jsonPath("$.truncated").value(false))
+                .andExpect(jsonPath("$.entries[0].path").value("src"))
+                .andExpect(jsonPath("$.entries[0].children[0].path").value("src/a"))
+                .andExpect(jsonPath("$.entries[0].children[0].children[0].path").value("src/a/A.java"));
+
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/tree/main", OWNER, REPO)
+                        .param("recursive", "true").param("limit", "2").accept("application/x-ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"path\":\"README.md\"")))
+                .andExpect(content().string(containsString("{\"count\":2,\"truncated\":true}")));
+    }
+
+    @Test
+    void testCommitHistoryStreamsAsNdjson() throws Exception {
+        ObjectId second;
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            second = GitTestSupport.commit(git.getRepository(), "main",
+                    Map.of("README.md", "hello", "data.txt", "changed"), "Change data");
+        }
+
+        String body = mockMvc.perform(get("/api/repos/{owner}/{repo}/commits/main", OWNER, REPO)
+                        .param("limit", "2").accept("application/x-ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].contains("\"sha\":\"" + second.getName() + "\""));
+        assertTrue(lines[1].contains("\"sha\":\"" + head.getName() + "\""));
+        assertEquals("{\"count\":2}", lines[2]);
+    }
+
+    @Test
+    void testCommitHistoryRepresentationsHaveOwnETags() throws Exception {
+        String etag = "\"" + head.getName() + "\"";
+        String ndjsonETag = "\"" + head.getName() + "-ndjson\"";
+
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/commits/main", OWNER, REPO))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(header().string("Vary", containsString("Accept")));
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/commits/main", OWNER, REPO).accept("application/x-ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", ndjsonETag))
+                .andExpect(header().string("Vary", containsString("Accept")));
+
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/commits/main", OWNER, REPO)
+                        .accept("application/x-ndjson").header("If-None-Match", etag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/commits/main", OWNER, REPO).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("Vary", containsString("Accept")));
+    }
+
+    @Test
+    void testCompareParsesRefsAndStreams() throws Exception {
+        ObjectId second;
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            second = GitTestSupport.commit(git.getRepository(), "main",
+                    Map.of("README.md", "hello", "data.txt", "changed"), "Change data");
+        }
+
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/compare/" + head.getName() + "...main", OWNER, REPO))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + head.getName() + "." + second.getName() + "\""))
+                .andExpect(jsonPath("$.baseCommit").value(head.getName()))
+                .andExpect(jsonPath("$.files[0].newPath").value("data.txt"));
+
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/commit/{sha}/diff", OWNER, REPO, second.getName())
+                        .param("stats", "true").accept("application/x-ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"newPath\":\"data.txt\"")))
+                .andExpect(content().string(containsString("\"changedFiles\":1")));
+
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/compare/main", OWNER, REPO))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testCompareDecodesRefNames() throws Exception {
+        ObjectId feature;
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            git.branchCreate().setName("feature/50%+off").setStartPoint(head.getName()).call();
+            feature = GitTestSupport.commit(git.getRepository(), "feature/50%+off",
+                    Map.of("README.md", "hello", "data.txt", "0123456789", "menu.txt", "coffee"), "Add menu");
+        }
+
+        mockMvc.perform(get(URI.create("/api/repos/" + OWNER + "/" + REPO + "/compare/main...feature/50%25%2Boff")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.headCommit").value(feature.getName()))
+                .andExpect(jsonPath("$.changedFiles").value(1))
+                .andExpect(jsonPath("$.files[0].newPath").value("menu.txt"));
+    }
+
+    @Test
+    void testDiffRepresentationsHaveOwnETags() throws Exception {
+        ObjectId second;
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            second = GitTestSupport.commit(git.getRepository(), "main",
+                    Map.of("README.md", "hello", "data.txt", "changed"), "Change data");
+        }
+        String diffETag = "\"" + second.getName() + "\"";
+        String compareETag = "\"" + head.getName() + "." + second.getName() + "\"";
+
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/commit/{sha}/diff", OWNER, REPO, second.getName()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", diffETag))
+                .andExpect(header().string("Vary", containsString("Accept")));
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/commit/{sha}/diff", OWNER, REPO, second.getName())
+                        .accept("application/x-ndjson").header("If-None-Match", diffETag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + second.getName() + "-ndjson\""))
+                .andExpect(header().string("Vary", containsString("Accept")));
+
+        String compare = "/api/repos/" + OWNER + "/" + REPO + "/compare/" + head.getName() + ".." + second.getName();
+        mockMvc.perform(get(compare).accept("application/x-ndjson").header("If-None-Match", compareETag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + head.getName() + "." + second.getName() + "-ndjson\""));
+        mockMvc.perform(get(compare).header("If-None-Match", compareETag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("Vary", containsString("Accept")));
+    }
+
+    @Test
+    void testShaAddressedContentIsImmutable() throws Exception {
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/contents/{ref}/README.md", OWNER, REPO, head.getName()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", containsString("immutable")));
+    }
+
+    @Test
+    void testRawContentSupportsRanges() throws Exception {
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/raw/main/data.txt", OWNER, REPO))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue("Content-Length", 10))
+                .andExpect(content().string("0123456789"));
+
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/raw/main/data.txt", OWNER, REPO).header("Range", "bytes=2-4"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 2-4/10"))
+                .andExpect(content().string("234"));
+
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/raw/main/data.txt", OWNER, REPO).header("Range", "bytes=0-1,-2"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Type", containsString("multipart/byteranges")))
+                .andExpect(content().string(containsString("Content-Range: bytes 8-9/10")));
+
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/raw/main/data.txt", OWNER, REPO).header("Range", "bytes=20-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable());
+    }
+
+    @Test
+    void testOverlappingRangesAreCoalesced() throws Exception {
+        // Overlapping and adjacent ranges become one part
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/raw/main/data.txt", OWNER, REPO).header("Range", "bytes=4-6,2-4,7-7"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 2-7/10"))
+                .andExpect(content().string("234567"));
+
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/raw/main/data.txt", OWNER, REPO).header("Range", "bytes=6-7,0-1,1-2"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string(containsString("Content-Range: bytes 0-2/10")))
+                .andExpect(content().string(containsString("Content-Range: bytes 6-7/10")));
+
+        // Ranges adding up to more than the file are answered with the file, once
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/raw/main/data.txt", OWNER, REPO).header("Range", "bytes=0-,0-,0-,0-"))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue("Content-Length", 10))
+                .andExpect(content().string("0123456789"));
+    }
+
+    @Test
+    void testBranchListingETagChangesWithRefs() throws Exception {
+        String etag = mockMvc.perform(get("/api/repos/{owner}/{repo}/branches", OWNER, REPO))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/branches", OWNER, REPO).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            GitTestSupport.commit(git.getRepository(), "main", Map.of("README.md", "changed"), "Update");
+        }
+
+        mockMvc.perform(get("/api/repos/{owner}/{repo}/branches", OWNER, REPO).header("If-None-Match", etag))
+                .andExpect(status().isOk());
+    }
+}
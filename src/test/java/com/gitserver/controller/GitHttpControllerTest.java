@@ -0,0 +1,310 @@
+package com.gitserver.controller;
+
+import com.gitserver.cache.UploadPackCache;
+import com.gitserver.dto.AdvertisementStats;
+import com.gitserver.dto.CreateRepositoryRequest;
+import com.gitserver.dto.TransportStats;
+import com.gitserver.repository.RepositoryJpaRepository;
+import com.gitserver.service.BranchService;
+import com.gitserver.service.GitTransportService;
+import com.gitserver.service.RepositoryService;
+import com.gitserver.support.GitTestSupport;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = {
+    "git.server.repositories.base-path=${java.io.tmpdir}/test-repos",
+    "git.server.ssh-keys.base-path=${java.io.tmpdir}/test-ssh-keys",
+    "git.server.upload-pack-cache.min-size=0",
+    "git.server.http.receive-pack=true"
+})
+class GitHttpControllerTest {
+
+    private static final String OWNER = "httpuser";
+    private static final String REPO = "http-test-repo";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private BranchService branchService;
+
+    @Autowired
+    private GitTransportService transportService;
+
+    @Autowired
+    private UploadPackCache uploadPackCache;
+
+    @Autowired
+    private RepositoryJpaRepository repositoryJpaRepository;
+
+    private String defaultBranch;
+    private ObjectId initialCommit;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        repositoryJpaRepository.findByOwnerAndName(OWNER, REPO)
+                .ifPresent(repo -> repositoryService.deleteRepository(OWNER, REPO));
+
+        CreateRepositoryRequest request = new CreateRepositoryRequest();
+        request.setName(REPO);
+        request.setOwner(OWNER);
+        repositoryService.createRepository(request);
+
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            Repository repository = git.getRepository();
+            defaultBranch = repository.getBranch();
+            initialCommit = GitTestSupport.commit(repository, defaultBranch, Map.of("README.md", "# Hello\n"), "Initial");
+        }
+    }
+
+    @Test
+    void testCloneAndPushOverSmartHttp(@TempDir Path workDir) throws Exception {
+        String url = "http://localhost:" + port + "/git/" + OWNER + "/" + REPO + ".git";
+
+        try (Git clone = Git.cloneRepository().setURI(url).setDirectory(workDir.toFile()).call()) {
+            assertEquals(initialCommit, clone.getRepository().resolve("HEAD"));
+
+            Files.writeString(workDir.resolve("pushed.txt"), "pushed over http\n");
+            clone.add().addFilepattern("pushed.txt").call();
+            RevCommit pushed = clone.commit().setMessage("Pushed").setAuthor("Test User", "test@example.com").call();
+            clone.push().call();
+
+            assertEquals(pushed.getName(), branchService.getBranch(OWNER, REPO, defaultBranch).getCommitId());
+        }
+
+        TransportStats upload = stats("git-upload-pack");
+        assertTrue(upload.getRequests() >= 1);
+        assertTrue(upload.getBytesOut() > 0);
+        assertTrue(stats("git-receive-pack").getBytesIn() > 0);
+    }
+
+    @Test
+    void testRepeatedClonesReplayCachedPack(@TempDir Path workDir) throws Exception {
+        String url = "http://localhost:" + port + "/git/" + OWNER + "/" + REPO + ".git";
+
+        clone(url, workDir.resolve("first")).close();
+        long hits = uploadPackCache.getStats().getHits();
+        try (Git clone = clone(url, workDir.resolve("second"))) {
+            assertEquals(initialCommit, clone.getRepository().resolve("HEAD"));
+        }
+        assertEquals(hits + 1, uploadPackCache.getStats().getHits());
+
+        // Moving a ref drops the repository's cached packs
+        long cached = uploadPackCache.getStats().getSize();
+        ObjectId next;
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            next = GitTestSupport.commit(git.getRepository(), defaultBranch, Map.of("b.txt", "b\n"), "Next");
+        }
+        assertEquals(cached - 1, uploadPackCache.getStats().getSize());
+        try (Git clone = clone(url, workDir.resolve("third"))) {
+            assertEquals(next, clone.getRepository().resolve("HEAD"));
+        }
+        assertEquals(hits + 1, uploadPackCache.getStats().getHits());
+    }
+
+    @Test
+    void testPrivateRepositoryIsNotServed() throws Exception {
+        String privateRepo = REPO + "-private";
+        repositoryJpaRepository.findByOwnerAndName(OWNER, privateRepo)
+                .ifPresent(repo -> repositoryService.deleteRepository(OWNER, privateRepo));
+        CreateRepositoryRequest request = new CreateRepositoryRequest();
+        request.setName(privateRepo);
+        request.setOwner(OWNER);
+        request.setPrivate(true);
+        repositoryService.createRepository(request);
+
+        URI uri = URI.create("http://localhost:" + port + "/git/" + OWNER + "/" + privateRepo
+                + ".git/info/refs?service=git-upload-pack");
+        HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+        assertEquals(404, connection.getResponseCode());
+    }
+
+    @Test
+    void testUploadPackAcceptsGzipRequestBody() throws Exception {
+        String body = pktLine("want " + initialCommit.getName() + "\n") + "0000" + pktLine("done\n");
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+            gzip.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        URI uri = URI.create("http://localhost:" + port + "/git/" + OWNER + "/" + REPO + ".git/git-upload-pack");
+        HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/x-git-upload-pack-request");
+        connection.setRequestProperty("Content-Encoding", "gzip");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(gzipped.toByteArray());
+        }
+
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("application/x-git-upload-pack-result", connection.getContentType());
+        byte[] response;
+        try (InputStream in = connection.getInputStream()) {
+            response = in.readAllBytes();
+        }
+        String text = new String(response, StandardCharsets.ISO_8859_1);
+        assertTrue(text.startsWith("0008NAK\n"));
+        assertTrue(text.contains("PACK"));
+    }
+
+    @Test
+    void testProtocolV2ListsOnlyPrefixedRefs(@TempDir Path workDir) throws Exception {
+        assumeTrue(gitAvailable(), "git is not installed");
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            for (int i = 0; i < 200; i++) {
+                RefUpdate update = git.getRepository().updateRef("refs/heads/ci/build-" + i);
+                update.setNewObjectId(initialCommit);
+                update.forceUpdate();
+            }
+        }
+        String url = "http://localhost:" + port + "/git/" + OWNER + "/" + REPO + ".git";
+        String branchRef = "refs/heads/" + defaultBranch;
+
+        AdvertisementStats v0Before = advertisements("v0");
+        List<String> v0Refs = runGit(workDir, "-c", "protocol.version=0", "ls-remote", url).lines().toList();
+        assertTrue(v0Refs.size() >= 201);
+        AdvertisementStats v0After = advertisements("v0");
+        assertEquals(v0Before.getAdvertisements() + 1, v0After.getAdvertisements());
+        long v0Bytes = v0After.getTotalBytes() - v0Before.getTotalBytes();
+
+        // Fetching one branch sends ls-refs with that branch as ref-prefix, then fetch
+        runGit(workDir, "init", "-q", "fetched");
+        Path fetched = workDir.resolve("fetched");
+        AdvertisementStats v2Before = advertisements("v2");
+        runGit(fetched, "-c", "protocol.version=2", "fetch", "--no-tags", url, branchRef);
+        assertEquals(initialCommit.getName(), runGit(fetched, "rev-parse", "FETCH_HEAD").trim());
+        AdvertisementStats v2After = advertisements("v2");
+        assertEquals(v2Before.getRefPrefixed() + 1, v2After.getRefPrefixed());
+        long v2Bytes = v2After.getTotalBytes() - v2Before.getTotalBytes();
+        assertTrue(v2Bytes * 20 < v0Bytes, "v2 " + v2Bytes + " bytes, v0 " + v0Bytes + " bytes");
+
+        runGit(workDir, "-c", "protocol.version=2", "clone", "-q", url, "cloned");
+        assertEquals(initialCommit.getName(), runGit(workDir.resolve("cloned"), "rev-parse", "HEAD").trim());
+    }
+
+    @Test
+    void testProtocolV2FetchesByWantRef() throws Exception {
+        String branchRef = "refs/heads/" + defaultBranch;
+        String body = pktLine("command=fetch\n") + "0001" + pktLine("want-ref " + branchRef + "\n")
+                + pktLine("done\n") + "0000";
+
+        URI uri = URI.create("http://localhost:" + port + "/git/" + OWNER + "/" + REPO + ".git/git-upload-pack");
+        HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/x-git-upload-pack-request");
+        connection.setRequestProperty("Git-Protocol", "version=2");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(200, connection.getResponseCode());
+        String text;
+        try (InputStream in = connection.getInputStream()) {
+            text = new String(in.readAllBytes(), StandardCharsets.ISO_8859_1);
+        }
+        assertTrue(text.contains("wanted-refs\n"));
+        assertTrue(text.contains(initialCommit.getName() + " " + branchRef + "\n"));
+        assertTrue(text.contains("packfile\n"));
+    }
+
+    @Test
+    void testClientHangingUpIsNotAServerError() {
+        String body = pktLine("command=fetch\n") + "0001" + pktLine("want " + initialCommit.getName() + "\n")
+                + pktLine("done\n") + "0000";
+        OutputStream hungUp = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        // A transport of its own keeps the counters apart from the other tests
+        assertDoesNotThrow(() -> transportService.uploadPack(OWNER, REPO, "hung-up", "version=2", true,
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), hungUp, null));
+        TransportStats stats = transportService.getStats().stream()
+                .filter(candidate -> candidate.getTransport().equals("hung-up"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(1, stats.getFailures());
+    }
+
+    private static boolean gitAvailable() {
+        try {
+            return new ProcessBuilder("git", "--version").start().waitFor() == 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static String runGit(Path directory, String... args) throws Exception {
+        List<String> command = new ArrayList<>(List.of("git"));
+        command.addAll(List.of(args));
+        ProcessBuilder builder = new ProcessBuilder(command).directory(directory.toFile()).redirectErrorStream(true);
+        builder.environment().put("HOME", directory.toString());
+        builder.environment().put("GIT_CONFIG_NOSYSTEM", "1");
+        builder.environment().put("GIT_TERMINAL_PROMPT", "0");
+        Process process = builder.start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(process.waitFor(60, TimeUnit.SECONDS));
+        assertEquals(0, process.exitValue(), output);
+        return output;
+    }
+
+    private AdvertisementStats advertisements(String protocol) {
+        return transportService.getAdvertisementStats().stream()
+                .filter(stats -> stats.getTransport().equals("http") && stats.getProtocol().equals(protocol))
+                .findFirst()
+                .orElseGet(() -> AdvertisementStats.builder().transport("http").protocol(protocol).build());
+    }
+
+    private static Git clone(String url, Path directory) throws Exception {
+        return Git.cloneRepository().setURI(url).setDirectory(directory.toFile()).call();
+    }
+
+    private TransportStats stats(String service) {
+        return transportService.getStats().stream()
+                .filter(stats -> stats.getTransport().equals("http") && stats.getService().equals(service))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static String pktLine(String payload) {
+        return String.format("%04x", payload.length() + 4) + payload;
+    }
+}
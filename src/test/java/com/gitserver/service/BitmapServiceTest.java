@@ -0,0 +1,143 @@
+package com.gitserver.service;
+
+import com.gitserver.dto.BitmapCoverage;
+import com.gitserver.dto.CreateRepositoryRequest;
+import com.gitserver.repository.RepositoryJpaRepository;
+import com.gitserver.support.GitTestSupport;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+    "git.server.repositories.base-path=${java.io.tmpdir}/test-repos",
+    "git.server.ssh-keys.base-path=${java.io.tmpdir}/test-ssh-keys",
+    "git.server.bitmaps.refresh-commits=3"
+})
+class BitmapServiceTest {
+
+    private static final String OWNER = "bitmapuser";
+    private static final String REPO = "bitmap-test-repo";
+
+    @Autowired
+    private BitmapService bitmapService;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private RepositoryJpaRepository repositoryJpaRepository;
+
+    @BeforeEach
+    void setUp() {
+        repositoryJpaRepository.findByOwnerAndName(OWNER, REPO)
+                .ifPresent(repo -> repositoryService.deleteRepository(OWNER, REPO));
+
+        CreateRepositoryRequest request = new CreateRepositoryRequest();
+        request.setName(REPO);
+        request.setOwner(OWNER);
+        repositoryService.createRepository(request);
+    }
+
+    @Test
+    void testCoverageAndRefreshAfterNewCommits() throws Exception {
+        commit("1");
+        commit("2");
+        ObjectId third = commit("3");
+        assertTrue(needsRefresh());
+        assertTrue(bitmapService.getCoverage(OWNER, REPO).getUncoveredCommits() >= 3);
+
+        BitmapCoverage written = bitmapService.write(OWNER, REPO);
+        assertTrue(written.isBitmapIndex());
+        assertEquals(0, written.getUncoveredCommits());
+        assertEquals(1.0, written.getCoverage());
+        assertEquals(written.getTips(), written.getTipsWithBitmap());
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO);
+             ObjectReader reader = git.getRepository().newObjectReader()) {
+            assertNotNull(reader.getBitmapIndex().getBitmap(third));
+        }
+
+        // One new commit stays below the threshold; walks only have to parse that one
+        commit("4");
+        assertFalse(needsRefresh());
+        BitmapCoverage partial = bitmapService.getCoverage(OWNER, REPO);
+        assertEquals(1, partial.getUncoveredCommits());
+        assertEquals(0, partial.getTipsWithBitmap());
+
+        commit("5");
+        ObjectId sixth = commit("6");
+        assertTrue(needsRefresh());
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            bitmapService.markStale(git.getRepository());
+        }
+        bitmapService.refreshPending();
+        awaitRepacked();
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO);
+             ObjectReader reader = git.getRepository().newObjectReader()) {
+            assertNotNull(reader.getBitmapIndex().getBitmap(sixth));
+        }
+    }
+
+    @Test
+    void testRefreshDoesNotWaitForRepacks() throws Exception {
+        commit("1");
+        commit("2");
+        commit("3");
+
+        // Stand-in for a long repack of another repository
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        bitmapService.getRepackExecutor().execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            assertTrue(started.await(30, TimeUnit.SECONDS));
+            try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+                bitmapService.markStale(git.getRepository());
+            }
+            // The scheduler thread only hands the work over, so other scheduled tasks keep running
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> bitmapService.refreshPending());
+            assertTrue(needsRefresh());
+        } finally {
+            release.countDown();
+        }
+        awaitRepacked();
+    }
+
+    private void awaitRepacked() throws Exception {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (needsRefresh() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertFalse(needsRefresh());
+    }
+
+    private boolean needsRefresh() throws Exception {
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            return bitmapService.needsRefresh(git.getRepository());
+        }
+    }
+
+    private ObjectId commit(String content) throws Exception {
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            return GitTestSupport.commit(git.getRepository(), "main", Map.of("a.txt", content), "Commit " + content);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.gitserver.service;
+
+import com.gitserver.dto.BlameHunk;
+import com.gitserver.dto.CreateRepositoryRequest;
+import com.gitserver.dto.FileBlame;
+import com.gitserver.repository.RepositoryJpaRepository;
+import com.gitserver.support.GitTestSupport;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.blame.BlameResult;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+    "git.server.repositories.base-path=${java.io.tmpdir}/test-repos",
+    "git.server.ssh-keys.base-path=${java.io.tmpdir}/test-ssh-keys"
+})
+class BlameServiceTest {
+
+    private static final String OWNER = "blameuser";
+    private static final String REPO = "blame-test-repo";
+
+    @Autowired
+    private BlameService blameService;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private RepositoryJpaRepository repositoryJpaRepository;
+
+    @BeforeEach
+    void setUp() {
+        repositoryJpaRepository.findByOwnerAndName(OWNER, REPO)
+                .ifPresent(repo -> repositoryService.deleteRepository(OWNER, REPO));
+
+        CreateRepositoryRequest request = new CreateRepositoryRequest();
+        request.setName(REPO);
+        request.setOwner(OWNER);
+        repositoryService.createRepository(request);
+    }
+
+    @Test
+    void testBlameDerivedFromParentMatchesFullBlame() throws Exception {
+        String[] versions = {
+            "a\nb\nc\nd\n",
+            "a\nB\nc\nd\ne\n",
+            "x\na\nB\nc\ne\n",
+            "x\na\nB\nc\ne\n",
+            "x\na\nB2\nc\ne\ny\n"
+        };
+        for (int i = 0; i < versions.length; i++) {
+            // Touch a second file so the unchanged version still makes a new commit
+            ObjectId commit = commit(Map.of("f.txt", versions[i], "n.txt", String.valueOf(i)), "Version " + i);
+            // Each blame after the first builds on the cached blame of its parent
+            assertEquals(jgitBlame(commit), lineCommits(blameService.getBlame(OWNER, REPO, commit.getName(),
+                    "f.txt", null, null)));
+        }
+    }
+
+    @Test
+    void testBlameLineRange() throws Exception {
+        ObjectId first = commit(Map.of("f.txt", "a\nb\nc\nd\n"), "First");
+        ObjectId second = commit(Map.of("f.txt", "a\nB\nC\nd\n"), "Second");
+
+        FileBlame blame = blameService.getBlame(OWNER, REPO, second.getName(), "f.txt", 2, 4);
+        assertEquals(4, blame.getLineCount());
+        assertEquals(2, blame.getHunks().size());
+        assertEquals(2, blame.getHunks().get(0).getStartLine());
+        assertEquals(2, blame.getHunks().get(0).getLineCount());
+        assertEquals(second.getName(), blame.getHunks().get(0).getCommitId());
+        assertEquals(4, blame.getHunks().get(1).getStartLine());
+        assertEquals(first.getName(), blame.getHunks().get(1).getCommitId());
+        assertEquals(4, blame.getHunks().get(1).getSourceStartLine());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> blameService.getBlame(OWNER, REPO, second.getName(), "f.txt", 9, null));
+    }
+
+    private List<String> jgitBlame(ObjectId commit) throws Exception {
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            BlameResult result = git.blame().setStartCommit(commit).setFilePath("f.txt").call();
+            List<String> lines = new ArrayList<>();
+            for (int i = 0; i < result.getResultContents().size(); i++) {
+                lines.add(result.getSourceCommit(i).getName() + ":" + result.getSourceLine(i));
+            }
+            return lines;
+        }
+    }
+
+    private static List<String> lineCommits(FileBlame blame) {
+        List<String> lines = new ArrayList<>();
+        for (BlameHunk hunk : blame.getHunks()) {
+            for (int i = 0; i < hunk.getLineCount(); i++) {
+                lines.add(hunk.getCommitId() + ":" + (hunk.getSourceStartLine() - 1 + i));
+            }
+        }
+        return lines;
+    }
+
+    private ObjectId commit(Map<String, String> files, String message) throws Exception {
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            return GitTestSupport.commit(git.getRepository(), "main", files, message);
+        }
+    }
+}
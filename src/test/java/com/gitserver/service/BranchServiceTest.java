@@ -0,0 +1,160 @@
+package com.gitserver.service;
+
+import com.gitserver.cache.AheadBehindCache;
+import com.gitserver.dto.BranchInfo;
+import com.gitserver.dto.BranchPage;
+import com.gitserver.dto.CreateRepositoryRequest;
+import com.gitserver.repository.RepositoryJpaRepository;
+import com.gitserver.support.GitTestSupport;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+    "git.server.repositories.base-path=${java.io.tmpdir}/test-repos",
+    "git.server.ssh-keys.base-path=${java.io.tmpdir}/test-ssh-keys"
+})
+class BranchServiceTest {
+
+    private static final String OWNER = "branchuser";
+    private static final String REPO = "branch-test-repo";
+
+    @Autowired
+    private BranchService branchService;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private RepositoryJpaRepository repositoryJpaRepository;
+
+    @BeforeEach
+    void setUp() {
+        repositoryJpaRepository.findByOwnerAndName(OWNER, REPO)
+                .ifPresent(repo -> repositoryService.deleteRepository(OWNER, REPO));
+
+        CreateRepositoryRequest request = new CreateRepositoryRequest();
+        request.setName(REPO);
+        request.setOwner(OWNER);
+        repositoryService.createRepository(request);
+    }
+
+    @Test
+    void testAheadBehindWithAndWithoutBitmaps() throws Exception {
+        String defaultBranch;
+        ObjectId feature;
+        ObjectId main;
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            Repository repository = git.getRepository();
+            defaultBranch = repository.getBranch();
+            ObjectId forkPoint = GitTestSupport.commit(repository, defaultBranch, Map.of("a.txt", "fork"), "Fork point");
+            RefUpdate update = repository.updateRef("refs/heads/feature");
+            update.setNewObjectId(forkPoint);
+            update.setForceUpdate(true);
+            update.update();
+            GitTestSupport.commit(repository, "feature", Map.of("a.txt", "f1"), "Feature 1");
+            GitTestSupport.commit(repository, "feature", Map.of("a.txt", "f2"), "Feature 2");
+            feature = GitTestSupport.commit(repository, "feature", Map.of("a.txt", "f3"), "Feature 3");
+            main = GitTestSupport.commit(repository, defaultBranch, Map.of("a.txt", "m1"), "Main 1");
+        }
+
+        List<BranchInfo> branches = branchService.getBranchPage(OWNER, REPO, null, "name", 100, null, true, true)
+                .getBranches();
+        BranchInfo featureInfo = branches.stream().filter(b -> b.getName().equals("feature")).findFirst().orElseThrow();
+        BranchInfo mainInfo = branches.stream().filter(b -> b.getName().equals(defaultBranch)).findFirst().orElseThrow();
+        assertEquals(3, featureInfo.getAheadBy());
+        assertEquals(1, featureInfo.getBehindBy());
+        assertNull(featureInfo.getAheadBehindTruncated());
+        assertEquals(0, mainInfo.getAheadBy());
+        assertNull(branchService.listBranches(OWNER, REPO).get(0).getAheadBy());
+
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            git.gc().call();
+            try (ObjectReader reader = git.getRepository().newObjectReader();
+                 AheadBehindCounter counter = new AheadBehindCounter(reader, main, 2)) {
+                assertNotNull(reader.getBitmapIndex());
+                assertEquals(new AheadBehindCache.AheadBehind(3, 1, false), counter.count(feature));
+            }
+            try (ObjectReader reader = git.getRepository().newObjectReader();
+                 AheadBehindCounter counter = new AheadBehindCounter(new NoBitmapReader(reader), main, 2)) {
+                assertEquals(new AheadBehindCache.AheadBehind(2, 1, true), counter.count(feature));
+            }
+        }
+    }
+
+    @Test
+    void testBranchPagesByPrefixAndCommitTime() throws Exception {
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            Repository repository = git.getRepository();
+            GitTestSupport.commit(repository, repository.getBranch(), Map.of("a.txt", "a"), "Initial");
+            for (int i = 1; i <= 5; i++) {
+                // Later branches get later commits, so "updated" order is the reverse of name order
+                GitTestSupport.commit(repository, "ci/" + i, Map.of("a.txt", "ci " + i), "CI " + i,
+                        Instant.ofEpochSecond(1_700_000_000L + i * 60L));
+            }
+        }
+
+        List<String> byName = new ArrayList<>();
+        String cursor = null;
+        do {
+            BranchPage page = branchService.getBranchPage(OWNER, REPO, "ci/", "name", 2, cursor, false, false);
+            assertTrue(page.getBranches().size() <= 2);
+            // Name order does not read commits, so there is no commit time to report
+            page.getBranches().forEach(branch -> assertNull(branch.getCommitTime()));
+            page.getBranches().forEach(branch -> byName.add(branch.getName()));
+            cursor = page.getNextCursor();
+            if (byName.size() == 2) {
+                // Deleting an already returned branch must not shift the next page
+                try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+                    git.branchDelete().setBranchNames("ci/1").setForce(true).call();
+                }
+            }
+        } while (cursor != null);
+        assertEquals(List.of("ci/1", "ci/2", "ci/3", "ci/4", "ci/5"), byName);
+
+        BranchPage newest = branchService.getBranchPage(OWNER, REPO, "ci/", "updated", 2, null, true, false);
+        assertEquals(List.of("ci/5", "ci/4"), newest.getBranches().stream().map(BranchInfo::getName).toList());
+        assertEquals("CI 5", newest.getBranches().get(0).getCommitMessage());
+        BranchPage next = branchService.getBranchPage(OWNER, REPO, "ci/", "updated", 2, newest.getNextCursor(), true, false);
+        assertEquals(List.of("ci/3", "ci/2"), next.getBranches().stream().map(BranchInfo::getName).toList());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> branchService.getBranchPage(OWNER, REPO, null, "size", 10, null, true, false));
+    }
+
+    /**
+     * Hides the bitmap index so the RevWalk fallback can be tested on a repository that has one.
+     */
+    private static final class NoBitmapReader extends ObjectReader.Filter {
+        private final ObjectReader delegate;
+
+        private NoBitmapReader(ObjectReader delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        protected ObjectReader delegate() {
+            return delegate;
+        }
+
+        @Override
+        public org.eclipse.jgit.lib.BitmapIndex getBitmapIndex() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.gitserver.service;
+
+import com.gitserver.dto.CommitInfo;
+import com.gitserver.dto.CreateRepositoryRequest;
+import com.gitserver.repository.RepositoryJpaRepository;
+import com.gitserver.support.GitTestSupport;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+    "git.server.repositories.base-path=${java.io.tmpdir}/test-repos",
+    "git.server.ssh-keys.base-path=${java.io.tmpdir}/test-ssh-keys"
+})
+class CommitGraphServiceTest {
+
+    private static final String OWNER = "graphuser";
+    private static final String REPO = "graph-test-repo";
+
+    @Autowired
+    private CommitGraphService commitGraphService;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private RepositoryJpaRepository repositoryJpaRepository;
+
+    @BeforeEach
+    void setUp() {
+        repositoryJpaRepository.findByOwnerAndName(OWNER, REPO)
+                .ifPresent(repo -> repositoryService.deleteRepository(OWNER, REPO));
+
+        CreateRepositoryRequest request = new CreateRepositoryRequest();
+        request.setName(REPO);
+        request.setOwner(OWNER);
+        repositoryService.createRepository(request);
+    }
+
+    @Test
+    void testWalksUseGraphAndFallBackWhenStale() throws Exception {
+        ObjectId first = commit(Map.of("a.txt", "a"), "First");
+        ObjectId second = commit(Map.of("a.txt", "b"), "Second");
+
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            assertTrue(commitGraphService.isStale(git.getRepository()));
+        }
+
+        commitGraphService.write(OWNER, REPO);
+
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO);
+             ObjectReader reader = git.getRepository().newObjectReader()) {
+            assertFalse(commitGraphService.isStale(git.getRepository()));
+            assertTrue(reader.getCommitGraph().orElseThrow().findGraphPosition(first) >= 0);
+        }
+
+        ObjectId third = commit(Map.of("a.txt", "c"), "Third");
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            assertTrue(commitGraphService.isStale(git.getRepository()));
+        }
+
+        List<String> history = fileService.getCommits(OWNER, REPO, "main", 3).stream()
+                .map(CommitInfo::getSha)
+                .toList();
+        assertEquals(List.of(third.getName(), second.getName(), first.getName()), history);
+    }
+
+    @Test
+    void testPathHistoryMatchesWithAndWithoutChangedPathFilters() throws Exception {
+        ObjectId first = commit(Map.of("docs/a.md", "1", "b.txt", "1"), "Add files");
+        commit(Map.of("docs/a.md", "1", "b.txt", "2"), "Change b");
+        ObjectId third = commit(Map.of("docs/a.md", "2", "b.txt", "2"), "Change a");
+        commit(Map.of("docs/a.md", "2", "b.txt", "3"), "Change b again");
+
+        List<String> beforeGraph = pathHistory("docs/a.md");
+        commitGraphService.write(OWNER, REPO);
+
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO);
+             RevWalk revWalk = new RevWalk(git.getRepository())) {
+            assertNotNull(revWalk.parseCommit(third).getChangedPathFilter(revWalk));
+        }
+        assertEquals(List.of(third.getName(), first.getName()), pathHistory("docs/a.md").subList(0, 2));
+        assertEquals(beforeGraph, pathHistory("docs/a.md"));
+        assertEquals(beforeGraph, pathHistory("docs"));
+    }
+
+    private List<String> pathHistory(String path) {
+        return fileService.getCommitPage(OWNER, REPO, "main", path, 100, null).getCommits().stream()
+                .map(CommitInfo::getSha)
+                .toList();
+    }
+
+    private ObjectId commit(Map<String, String> files, String message) throws Exception {
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            return GitTestSupport.commit(git.getRepository(), "main", files, message);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.gitserver.service;
+
+import com.gitserver.dto.CreateRepositoryRequest;
+import com.gitserver.dto.DiffResult;
+import com.gitserver.dto.FileDiff;
+import com.gitserver.repository.RepositoryJpaRepository;
+import com.gitserver.support.GitTestSupport;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+    "git.server.repositories.base-path=${java.io.tmpdir}/test-repos",
+    "git.server.ssh-keys.base-path=${java.io.tmpdir}/test-ssh-keys",
+    "git.server.diff.max-patch-size=200B"
+})
+class DiffServiceTest {
+
+    private static final String OWNER = "diffuser";
+    private static final String REPO = "diff-test-repo";
+
+    private static final String LONG_TEXT = "line one of a file that is long enough to be detected as a rename\n"
+            + "line two of a file that is long enough to be detected as a rename\n"
+            + "line three of a file that is long enough to be detected as a rename\n";
+
+    @Autowired
+    private DiffService diffService;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private RepositoryJpaRepository repositoryJpaRepository;
+
+    @BeforeEach
+    void setUp() {
+        repositoryJpaRepository.findByOwnerAndName(OWNER, REPO)
+                .ifPresent(repo -> repositoryService.deleteRepository(OWNER, REPO));
+
+        CreateRepositoryRequest request = new CreateRepositoryRequest();
+        request.setName(REPO);
+        request.setOwner(OWNER);
+        repositoryService.createRepository(request);
+    }
+
+    @Test
+    void testCommitDiffDetectsRenamesAndCountsLines() throws Exception {
+        ObjectId first = commit(Map.of("old.txt", LONG_TEXT, "a.txt", "a\nb\n"), "First");
+        ObjectId second = commit(Map.of("new.txt", LONG_TEXT, "a.txt", "a\nB\nc\n"), "Second");
+
+        DiffResult diff = diffService.getCommitDiff(OWNER, REPO, second.getName(), true);
+        assertEquals(first.getName(), diff.getBaseCommit());
+        assertEquals(2, diff.getChangedFiles());
+        assertEquals(2, diff.getAdditions());
+        assertEquals(1, diff.getDeletions());
+
+        FileDiff modified = file(diff, "MODIFY");
+        assertEquals("a.txt", modified.getNewPath());
+        assertTrue(modified.getPatch().contains("+B\n"));
+        FileDiff renamed = file(diff, "RENAME");
+        assertEquals("old.txt", renamed.getOldPath());
+        assertEquals("new.txt", renamed.getNewPath());
+        assertEquals(100, renamed.getSimilarity());
+
+        DiffResult stats = diffService.getCommitDiff(OWNER, REPO, second.getName(), false);
+        assertNull(file(stats, "MODIFY").getPatch());
+        assertEquals(2, file(stats, "MODIFY").getAdditions());
+        assertEquals(1, file(stats, "MODIFY").getDeletions());
+    }
+
+    @Test
+    void testLargePatchesAreLeftOutButStreamedFilesAreCounted() throws Exception {
+        commit(Map.of("big.txt", "x\n"), "First");
+        ObjectId second = commit(Map.of("big.txt", LONG_TEXT + LONG_TEXT), "Second");
+
+        DiffResult diff = diffService.getCommitDiff(OWNER, REPO, second.getName(), true);
+        assertTrue(diff.isTruncated());
+        assertTrue(diff.getFiles().get(0).isTruncated());
+        assertNull(diff.getFiles().get(0).getPatch());
+        assertEquals(6, diff.getFiles().get(0).getAdditions());
+
+        List<FileDiff> streamed = new ArrayList<>();
+        DiffResult summary = diffService.streamCommitDiff(OWNER, REPO, second.getName(), true, streamed::add);
+        assertEquals(1, streamed.size());
+        assertEquals(6, summary.getAdditions());
+        assertNull(summary.getFiles());
+
+        IOException thrown = assertThrows(IOException.class, () -> diffService.streamCommitDiff(OWNER, REPO,
+                second.getName(), true, file -> {
+                    throw new IOException("Broken pipe");
+                }));
+        assertEquals("Broken pipe", thrown.getMessage());
+    }
+
+    @Test
+    void testCompareAgainstMergeBase() throws Exception {
+        ObjectId base = commit(Map.of("a.txt", "a\n"), "Base");
+        ObjectId feature = commit(Map.of("a.txt", "a\n", "feature.txt", "f\n"), "Feature");
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            GitTestSupport.commit(git.getRepository(), "other", Map.of("a.txt", "changed\n"), "Unrelated root");
+        }
+
+        DiffResult threeDot = diffService.compare(OWNER, REPO, base.getName(), feature.getName(), true, false);
+        assertEquals(base.getName(), threeDot.getBaseCommit());
+        assertEquals(1, threeDot.getChangedFiles());
+        assertEquals("feature.txt", threeDot.getFiles().get(0).getNewPath());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> diffService.compare(OWNER, REPO, "other", feature.getName(), true, false));
+        DiffResult twoDot = diffService.compare(OWNER, REPO, "other", feature.getName(), false, false);
+        assertEquals(2, twoDot.getChangedFiles());
+    }
+
+    private static FileDiff file(DiffResult diff, String changeType) {
+        return diff.getFiles().stream().filter(file -> file.getChangeType().equals(changeType)).findFirst().orElseThrow();
+    }
+
+    private ObjectId commit(Map<String, String> files, String message) throws Exception {
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            return GitTestSupport.commit(git.getRepository(), "main", files, message);
+        }
+    }
+}
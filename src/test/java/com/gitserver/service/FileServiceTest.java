@@ -0,0 +1,209 @@
+package com.gitserver.service;
+
+import com.gitserver.cache.CommitCache;
+import com.gitserver.dto.BranchInfo;
+import com.gitserver.dto.CommitInfo;
+import com.gitserver.dto.CommitPage;
+import com.gitserver.dto.CreateBranchRequest;
+import com.gitserver.dto.CreateRepositoryRequest;
+import com.gitserver.dto.FileContent;
+import com.gitserver.dto.TreeEntry;
+import com.gitserver.repository.RepositoryJpaRepository;
+import com.gitserver.support.GitTestSupport;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+    "git.server.repositories.base-path=${java.io.tmpdir}/test-repos",
+    "git.server.ssh-keys.base-path=${java.io.tmpdir}/test-ssh-keys"
+})
+class FileServiceTest {
+
+    private static final String OWNER = "fileuser";
+    private static final String REPO = "file-test-repo";
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private BranchService branchService;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private CommitCache commitCache;
+
+    @Autowired
+    private RepositoryJpaRepository repositoryJpaRepository;
+
+    @BeforeEach
+    void setUp() {
+        repositoryJpaRepository.findByOwnerAndName(OWNER, REPO)
+                .ifPresent(repo -> repositoryService.deleteRepository(OWNER, REPO));
+
+        CreateRepositoryRequest request = new CreateRepositoryRequest();
+        request.setName(REPO);
+        request.setOwner(OWNER);
+        repositoryService.createRepository(request);
+    }
+
+    @Test
+    void testGetTreeFollowsBranchUpdates() throws Exception {
+        commit(Map.of("README.md", "hello"), "Initial commit");
+        assertEquals(List.of("README.md"), names(fileService.getTree(OWNER, REPO, "main", null)));
+
+        commit(Map.of("README.md", "hello", "LICENSE", "MIT"), "Add license");
+        assertEquals(List.of("LICENSE", "README.md"), names(fileService.getTree(OWNER, REPO, "main", null)));
+    }
+
+    @Test
+    void testGetTreeListsDirectChildrenWithOptionalSizes() throws Exception {
+        commit(Map.of("src/Main.java", "class Main {}", "src/util/Strings.java", "class Strings {}", "README.md", "hi"),
+                "Add sources");
+
+        List<TreeEntry> entries = fileService.getTree(OWNER, REPO, "main", "src");
+        assertEquals(List.of("util", "Main.java"), names(entries));
+        assertEquals("src/Main.java", entries.get(1).getPath());
+        assertEquals(13L, entries.get(1).getSize());
+
+        List<TreeEntry> withoutSizes = fileService.getTree(OWNER, REPO, "main", "src", false);
+        assertEquals(List.of("util", "Main.java"), names(withoutSizes));
+        assertNull(withoutSizes.get(1).getSize());
+    }
+
+    @Test
+    void testWalkTreePassesVisitorFailuresThrough() throws Exception {
+        commit(Map.of("README.md", "hello"), "Initial commit");
+
+        IOException thrown = assertThrows(IOException.class, () -> fileService.walkTree(OWNER, REPO, "main", null,
+                null, null, false, (entry, depth) -> {
+                    throw new IOException("Broken pipe");
+                }));
+        assertEquals("Broken pipe", thrown.getMessage());
+    }
+
+    @Test
+    void testWalkCommitsPassesVisitorFailuresThrough() throws Exception {
+        commit(Map.of("README.md", "hello"), "Initial commit");
+
+        IOException thrown = assertThrows(IOException.class, () -> fileService.walkCommits(OWNER, REPO, "main", null,
+                null, commit -> {
+                    throw new IOException("Broken pipe");
+                }));
+        assertEquals("Broken pipe", thrown.getMessage());
+    }
+
+    @Test
+    void testResolveNewAndFullShaRefs() throws Exception {
+        ObjectId first = commit(Map.of("a.txt", "a"), "First");
+
+        CreateBranchRequest request = new CreateBranchRequest();
+        request.setBranchName("feature");
+        request.setSourceBranch("main");
+        branchService.createBranch(OWNER, REPO, request);
+
+        commit(Map.of("a.txt", "a", "b.txt", "b"), "Second");
+
+        assertEquals(first.getName(), fileService.getCommits(OWNER, REPO, "feature", 1).get(0).getSha());
+        assertEquals(List.of("a.txt"), names(fileService.getTree(OWNER, REPO, first.getName(), null)));
+        assertEquals(2, fileService.getCommits(OWNER, REPO, "main", 10).size());
+    }
+
+    @Test
+    void testGetFileContentIsStableAcrossCachedReads() throws Exception {
+        commit(Map.of("docs/guide.md", "# Guide"), "Add guide");
+
+        FileContent first = fileService.getFileContent(OWNER, REPO, "main", "docs/guide.md");
+        FileContent second = fileService.getFileContent(OWNER, REPO, "main", "docs/guide.md");
+
+        assertEquals("guide.md", first.getName());
+        assertEquals("utf-8", first.getEncoding());
+        assertEquals("# Guide", first.getContent());
+        assertEquals(first, second);
+    }
+
+    @Test
+    void testGetFileContentEncodesBinaryAsBase64() throws Exception {
+        byte[] bytes = {(byte) 0x89, 'P', 'N', 'G', 0, 1, 2};
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            GitTestSupport.commitBytes(git.getRepository(), "main", Map.of("logo.png", bytes), "Add logo");
+        }
+
+        FileContent content = fileService.getFileContent(OWNER, REPO, "main", "logo.png");
+
+        assertEquals("base64", content.getEncoding());
+        assertArrayEquals(bytes, Base64.getDecoder().decode(content.getContent()));
+    }
+
+    @Test
+    void testCommitPagesFollowCursor() throws Exception {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            expected.add(0, commit(Map.of("n.txt", String.valueOf(i)), "Commit " + i).getName());
+        }
+
+        CommitPage first = fileService.getCommitPage(OWNER, REPO, "main", null, 2, null);
+        CommitPage second = fileService.getCommitPage(OWNER, REPO, "main", null, 2, first.getNextCursor());
+        // Reusing a cursor after its cached walk was taken rebuilds the walk from the cursor
+        CommitPage again = fileService.getCommitPage(OWNER, REPO, "main", null, 2, first.getNextCursor());
+        CommitPage last = fileService.getCommitPage(OWNER, REPO, "main", null, 2, second.getNextCursor());
+
+        assertEquals(expected.subList(0, 2), shas(first));
+        assertEquals(expected.subList(2, 4), shas(second));
+        assertEquals(shas(second), shas(again));
+        assertEquals(expected.subList(4, 5), shas(last));
+        assertNull(last.getNextCursor());
+        assertThrows(IllegalArgumentException.class,
+                () -> fileService.getCommitPage(OWNER, REPO, "main", null, 2, "not-a-cursor"));
+    }
+
+    @Test
+    void testCommitMetadataIsSharedThroughCommitCache() throws Exception {
+        ObjectId first = commit(Map.of("a.txt", "1"), "First\n\nWith a body");
+        ObjectId second = commit(Map.of("a.txt", "2"), "Second");
+
+        CommitInfo fromHistory = fileService.getCommits(OWNER, REPO, "main", 1).get(0);
+        long hits = commitCache.getStats().getHits();
+        CommitInfo fromLookup = fileService.getCommit(OWNER, REPO, second.getName());
+        BranchInfo branch = branchService.getBranch(OWNER, REPO, "main");
+
+        assertEquals(hits + 2, commitCache.getStats().getHits());
+        assertEquals(fromHistory, fromLookup);
+        assertEquals(second.getName(), branch.getCommitId());
+        assertEquals("Second", branch.getCommitMessage());
+        assertEquals(fromLookup.getCommitterTime(), branch.getCommitTime());
+
+        assertEquals("First\n\nWith a body", fileService.getCommit(OWNER, REPO, first.getName()).getMessage());
+        assertSame(commitCache.get(OWNER + "/" + REPO, first).author(),
+                commitCache.get(OWNER + "/" + REPO, second).author());
+    }
+
+    private ObjectId commit(Map<String, String> files, String message) throws Exception {
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            return GitTestSupport.commit(git.getRepository(), "main", files, message);
+        }
+    }
+
+    private static List<String> shas(CommitPage page) {
+        return page.getCommits().stream().map(CommitInfo::getSha).toList();
+    }
+
+    private static List<String> names(List<TreeEntry> entries) {
+        return entries.stream().map(TreeEntry::getName).toList();
+    }
+}
@@ -3,6 +3,7 @@ package com.gitserver.service;
 import com.gitserver.config.GitServerConfig;
 import com.gitserver.dto.CreateRepositoryRequest;
 import com.gitserver.dto.RepositoryResponse;
+import com.gitserver.exception.RepositoryNotFoundException;
 import com.gitserver.repository.RepositoryJpaRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -100,4 +101,18 @@ class RepositoryServiceTest {
         List<RepositoryResponse> repos = repositoryService.listRepositories("testuser");
         assertTrue(repos.isEmpty());
     }
+
+    @Test
+    void testGetGitRepositoryAfterDelete() {
+        CreateRepositoryRequest request = new CreateRepositoryRequest();
+        request.setName("registry-test-repo");
+        request.setOwner("testuser");
+        repositoryService.createRepository(request);
+
+        repositoryService.getGitRepository("testuser", "registry-test-repo").close();
+        repositoryService.deleteRepository("testuser", "registry-test-repo");
+
+        assertThrows(RepositoryNotFoundException.class,
+                () -> repositoryService.getGitRepository("testuser", "registry-test-repo"));
+    }
 }
@@ -0,0 +1,103 @@
+package com.gitserver.service;
+
+import com.gitserver.dto.CreateRepositoryRequest;
+import com.gitserver.dto.CreateTagRequest;
+import com.gitserver.dto.TagInfo;
+import com.gitserver.dto.TagPage;
+import com.gitserver.repository.RepositoryJpaRepository;
+import com.gitserver.support.GitTestSupport;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+    "git.server.repositories.base-path=${java.io.tmpdir}/test-repos",
+    "git.server.ssh-keys.base-path=${java.io.tmpdir}/test-ssh-keys"
+})
+class TagServiceTest {
+
+    private static final String OWNER = "taguser";
+    private static final String REPO = "tag-test-repo";
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private RepositoryJpaRepository repositoryJpaRepository;
+
+    @BeforeEach
+    void setUp() {
+        repositoryJpaRepository.findByOwnerAndName(OWNER, REPO)
+                .ifPresent(repo -> repositoryService.deleteRepository(OWNER, REPO));
+
+        CreateRepositoryRequest request = new CreateRepositoryRequest();
+        request.setName(REPO);
+        request.setOwner(OWNER);
+        repositoryService.createRepository(request);
+    }
+
+    @Test
+    void testTagPagesInVersionOrderFromPeeledRefs() throws Exception {
+        ObjectId commitId;
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            Repository repository = git.getRepository();
+            // Repository files outlive the in-memory database between runs, so drop leftover tags
+            String[] leftover = repository.getRefDatabase().getRefsByPrefix(Constants.R_TAGS).stream()
+                    .map(Ref::getName).toArray(String[]::new);
+            git.tagDelete().setTags(leftover).call();
+            commitId = GitTestSupport.commit(repository, repository.getBranch(), Map.of("a.txt", "a"), "Initial");
+        }
+        for (String name : List.of("v1.9.3", "v1.10.0", "v1.10.0-rc.1", "v2.0.0", "nightly")) {
+            CreateTagRequest request = new CreateTagRequest();
+            request.setTagName(name);
+            request.setCommitId(commitId.getName());
+            request.setAnnotated(name.equals("v2.0.0"));
+            request.setMessage("Release " + name);
+            tagService.createTag(OWNER, REPO, request);
+        }
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            // Packing refs records the peeled target of each annotated tag
+            git.gc().call();
+        }
+
+        List<String> names = new ArrayList<>();
+        String cursor = null;
+        do {
+            TagPage page = tagService.getTagPage(OWNER, REPO, null, "version", 2, cursor, false);
+            page.getTags().forEach(tag -> names.add(tag.getName()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(List.of("v2.0.0", "v1.10.0", "v1.10.0-rc.1", "v1.9.3", "nightly"), names);
+
+        TagInfo summary = tagService.getTagPage(OWNER, REPO, "v2", "name", 10, null, false).getTags().get(0);
+        assertTrue(summary.isAnnotated());
+        assertEquals(commitId.getName(), summary.getCommitId());
+        assertNull(summary.getMessage());
+        assertNull(summary.getTagTime());
+
+        TagInfo annotated = tagService.getTagPage(OWNER, REPO, "v2", "name", 10, null, true).getTags().get(0);
+        assertEquals(commitId.getName(), annotated.getCommitId());
+        assertEquals("Release v2.0.0", annotated.getMessage().trim());
+        assertNotNull(annotated.getTagTime());
+        TagInfo lightweight = tagService.getTag(OWNER, REPO, "v1.9.3");
+        assertFalse(lightweight.isAnnotated());
+        assertEquals(commitId.getName(), lightweight.getCommitId());
+    }
+}
@@ -0,0 +1,202 @@
+package com.gitserver.ssh;
+
+import com.gitserver.dto.AddSshKeyRequest;
+import com.gitserver.dto.CreateRepositoryRequest;
+import com.gitserver.dto.SshKeyResponse;
+import com.gitserver.dto.TransportStats;
+import com.gitserver.repository.RepositoryJpaRepository;
+import com.gitserver.service.BranchService;
+import com.gitserver.service.GitTransportService;
+import com.gitserver.service.RepositoryService;
+import com.gitserver.service.SshKeyService;
+import com.gitserver.support.GitTestSupport;
+import org.apache.sshd.common.config.keys.PublicKeyEntry;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.TransportConfigCallback;
+import org.eclipse.jgit.api.errors.TransportException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.SshTransport;
+import org.eclipse.jgit.transport.sshd.ServerKeyDatabase;
+import org.eclipse.jgit.transport.sshd.SshdSessionFactory;
+import org.eclipse.jgit.transport.sshd.SshdSessionFactoryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+    "git.server.repositories.base-path=${java.io.tmpdir}/test-repos",
+    "git.server.ssh-keys.base-path=${java.io.tmpdir}/test-ssh-keys"
+})
+class GitSshServerTest {
+
+    private static final String OWNER = "sshuser";
+    private static final String REPO = "ssh-test-repo";
+
+    @Autowired
+    private GitSshServer sshServer;
+
+    @Autowired
+    private SshKeyService sshKeyService;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private BranchService branchService;
+
+    @Autowired
+    private GitTransportService transportService;
+
+    @Autowired
+    private RepositoryJpaRepository repositoryJpaRepository;
+
+    @TempDir
+    private Path sshHome;
+
+    private KeyPair keyPair;
+    private SshKeyResponse registeredKey;
+    private SshdSessionFactory sessionFactory;
+    private String defaultBranch;
+    private ObjectId initialCommit;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        repositoryJpaRepository.findByOwnerAndName(OWNER, REPO)
+                .ifPresent(repo -> repositoryService.deleteRepository(OWNER, REPO));
+
+        CreateRepositoryRequest request = new CreateRepositoryRequest();
+        request.setName(REPO);
+        request.setOwner(OWNER);
+        repositoryService.createRepository(request);
+
+        try (Git git = repositoryService.getGitRepository(OWNER, REPO)) {
+            Repository repository = git.getRepository();
+            defaultBranch = repository.getBranch();
+            initialCommit = GitTestSupport.commit(repository, defaultBranch, Map.of("README.md", "# Hello\n"), "Initial");
+        }
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(256);
+        keyPair = generator.generateKeyPair();
+        registeredKey = sshKeyService.addSshKey(new AddSshKeyRequest(OWNER, "test key",
+                PublicKeyEntry.toString(keyPair.getPublic())));
+
+        sessionFactory = new SshdSessionFactoryBuilder()
+                .setHomeDirectory(sshHome.toFile())
+                .setSshDirectory(sshHome.toFile())
+                .setPreferredAuthentications("publickey")
+                .setDefaultKeysProvider(dir -> List.of(keyPair))
+                .setServerKeyDatabase((home, dir) -> new AcceptAllServerKeys())
+                .build(null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionFactory.close();
+        if (registeredKey != null) {
+            sshKeyService.deleteSshKey(registeredKey.getId());
+        }
+    }
+
+    @Test
+    void testCloneAndPushOverSsh() throws Exception {
+        Path workDir = sshHome.resolve("clone");
+        try (Git clone = Git.cloneRepository().setURI(url()).setDirectory(workDir.toFile())
+                .setTransportConfigCallback(transport()).call()) {
+            assertEquals(initialCommit, clone.getRepository().resolve("HEAD"));
+
+            Files.writeString(workDir.resolve("pushed.txt"), "pushed over ssh\n");
+            clone.add().addFilepattern("pushed.txt").call();
+            RevCommit pushed = clone.commit().setMessage("Pushed").setAuthor("Test User", "test@example.com").call();
+            clone.push().setTransportConfigCallback(transport()).call();
+
+            assertEquals(pushed.getName(), branchService.getBranch(OWNER, REPO, defaultBranch).getCommitId());
+        }
+
+        assertTrue(stats(GitTransportService.UPLOAD_PACK).getBytesOut() > 0);
+        assertTrue(stats(GitTransportService.RECEIVE_PACK).getBytesIn() > 0);
+    }
+
+    @Test
+    void testDeletedKeyIsRejected() {
+        sshKeyService.deleteSshKey(registeredKey.getId());
+        registeredKey = null;
+
+        assertThrows(TransportException.class, () -> Git.cloneRepository().setURI(url())
+                .setDirectory(sshHome.resolve("clone").toFile())
+                .setTransportConfigCallback(transport()).call().close());
+    }
+
+    @Test
+    void testOtherUsersCanFetchButNotPush() throws Exception {
+        sshKeyService.deleteSshKey(registeredKey.getId());
+        registeredKey = sshKeyService.addSshKey(new AddSshKeyRequest("someone-else", "test key",
+                PublicKeyEntry.toString(keyPair.getPublic())));
+
+        Path workDir = sshHome.resolve("clone");
+        try (Git clone = Git.cloneRepository().setURI(url()).setDirectory(workDir.toFile())
+                .setTransportConfigCallback(transport()).call()) {
+            assertEquals(initialCommit, clone.getRepository().resolve("HEAD"));
+
+            clone.commit().setAllowEmpty(true).setMessage("Not allowed")
+                    .setAuthor("Test User", "test@example.com").call();
+            assertThrows(TransportException.class, () -> clone.push().setTransportConfigCallback(transport()).call());
+        }
+        assertEquals(initialCommit.getName(), branchService.getBranch(OWNER, REPO, defaultBranch).getCommitId());
+    }
+
+    @Test
+    void testParsesRepositoryPaths() {
+        assertArrayEquals(new String[] {"owner", "name"}, GitSshCommand.ownerAndName("/owner/name.git"));
+        assertArrayEquals(new String[] {"owner", "name"}, GitSshCommand.ownerAndName("owner/name"));
+        assertArrayEquals(new String[] {"owner", "name"}, GitSshCommand.ownerAndName("~/owner/name.git/"));
+        assertThrows(IllegalArgumentException.class, () -> GitSshCommand.ownerAndName("/name.git"));
+    }
+
+    private String url() {
+        return "ssh://git@localhost:" + sshServer.getPort() + "/" + OWNER + "/" + REPO + ".git";
+    }
+
+    private TransportConfigCallback transport() {
+        return transport -> ((SshTransport) transport).setSshSessionFactory(sessionFactory);
+    }
+
+    private TransportStats stats(String service) {
+        return transportService.getStats().stream()
+                .filter(stats -> stats.getTransport().equals("ssh") && stats.getService().equals(service))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static final class AcceptAllServerKeys implements ServerKeyDatabase {
+        @Override
+        public List<PublicKey> lookup(String connectAddress, InetSocketAddress remoteAddress, Configuration config) {
+            return List.of();
+        }
+
+        @Override
+        public boolean accept(String connectAddress, InetSocketAddress remoteAddress, PublicKey serverKey,
+                              Configuration config, CredentialsProvider provider) {
+            return true;
+        }
+    }
+}
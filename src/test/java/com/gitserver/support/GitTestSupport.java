@@ -0,0 +1,95 @@
+package com.gitserver.support;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Helpers for writing commits directly into bare test repositories.
+ */
+public final class GitTestSupport {
+
+    private GitTestSupport() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Commit the given path to content map as the full tree of a new commit on a branch.
+     */
+    public static ObjectId commit(Repository repository, String branch, Map<String, String> files, String message)
+            throws IOException {
+        Map<String, byte[]> contents = new TreeMap<>();
+        files.forEach((path, content) -> contents.put(path, content.getBytes(StandardCharsets.UTF_8)));
+        return commitBytes(repository, branch, contents, message);
+    }
+
+    /**
+     * Like {@link #commit(Repository, String, Map, String)}, with a fixed author and committer time.
+     */
+    public static ObjectId commit(Repository repository, String branch, Map<String, String> files, String message,
+                                  Instant when) throws IOException {
+        Map<String, byte[]> contents = new TreeMap<>();
+        files.forEach((path, content) -> contents.put(path, content.getBytes(StandardCharsets.UTF_8)));
+        return commitBytes(repository, branch, contents, message,
+                new PersonIdent("Test User", "test@example.com", when, ZoneOffset.UTC));
+    }
+
+    public static ObjectId commitBytes(Repository repository, String branch, Map<String, byte[]> files, String message)
+            throws IOException {
+        return commitBytes(repository, branch, files, message, new PersonIdent("Test User", "test@example.com"));
+    }
+
+    private static ObjectId commitBytes(Repository repository, String branch, Map<String, byte[]> files,
+                                        String message, PersonIdent ident) throws IOException {
+        String refName = Constants.R_HEADS + branch;
+        ObjectId parent = repository.resolve(refName);
+
+        try (ObjectInserter inserter = repository.newObjectInserter()) {
+            DirCache index = DirCache.newInCore();
+            DirCacheBuilder builder = index.builder();
+            for (Map.Entry<String, byte[]> file : new TreeMap<>(files).entrySet()) {
+                DirCacheEntry entry = new DirCacheEntry(file.getKey());
+                entry.setFileMode(FileMode.REGULAR_FILE);
+                entry.setObjectId(inserter.insert(Constants.OBJ_BLOB, file.getValue()));
+                builder.add(entry);
+            }
+            builder.finish();
+
+            CommitBuilder commit = new CommitBuilder();
+            commit.setTreeId(index.writeTree(inserter));
+            commit.setAuthor(ident);
+            commit.setCommitter(ident);
+            commit.setMessage(message);
+            if (parent != null) {
+                commit.setParentId(parent);
+            }
+            ObjectId commitId = inserter.insert(commit);
+            inserter.flush();
+
+            RefUpdate update = repository.updateRef(refName);
+            update.setNewObjectId(commitId);
+            update.setForceUpdate(true);
+            RefUpdate.Result result = update.update();
+            if (result != RefUpdate.Result.NEW && result != RefUpdate.Result.FAST_FORWARD
+                    && result != RefUpdate.Result.FORCED) {
+                throw new IOException("Failed to update " + refName + ": " + result);
+            }
+            return commitId;
+        }
+    }
+}
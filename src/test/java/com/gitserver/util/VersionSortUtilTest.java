@@ -0,0 +1,37 @@
+package com.gitserver.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionSortUtilTest {
+
+    @Test
+    void testSortKeyOrdersNumbersByValue() {
+        assertTrue(key("v1.10.0").compareTo(key("v1.9.3")) > 0);
+        assertTrue(key("2.0").compareTo(key("v1.99")) > 0);
+        assertEquals(key("v1.02"), key("1.2"));
+    }
+
+    @Test
+    void testSortKeyOrdersPreReleasesBeforeReleases() {
+        List<String> sorted = Stream.of("v1.2.1", "v1.2.0", "v1.2.0-rc.10", "v1.2.0-rc.2", "v1.2.0-beta", "v1.2.0+build.5")
+                .sorted(Comparator.comparing(VersionSortUtil::sortKey).thenComparing(Comparator.naturalOrder()))
+                .toList();
+        assertEquals(List.of("v1.2.0-beta", "v1.2.0-rc.2", "v1.2.0-rc.10", "v1.2.0", "v1.2.0+build.5", "v1.2.1"), sorted);
+    }
+
+    @Test
+    void testSortKeyPutsNonVersionsLowest() {
+        assertTrue(key("release-candidate").compareTo(key("0.0.1")) < 0);
+        assertEquals(key("latest"), key("nightly"));
+    }
+
+    private static String key(String name) {
+        return VersionSortUtil.sortKey(name);
+    }
+}